@@ -14,6 +14,18 @@ dependencies {
     compileOnly("com.inductiveautomation.ignitionsdk:designer-api:${rootProject.extra["sdk_version"]}")
     compileOnly("com.inductiveautomation.ignitionsdk:ignition-common:${rootProject.extra["sdk_version"]}")
     compileOnly(project(":common"))
+    // Code editor theming; the Designer ships RSyntaxTextArea at runtime
+    compileOnly("com.fifesoft:rsyntaxtextarea:3.3.4")
+
+    // Tests drive the painter on stub Swing trees; DarkPainter links RSyntaxTextArea
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testRuntimeOnly("com.fifesoft:rsyntaxtextarea:3.3.4")
+}
+
+tasks.test {
+    useJUnitPlatform()
+    systemProperty("java.awt.headless", "true")
 }
 
 
@@ -0,0 +1,369 @@
+package com.example.darkmode.designer;
+
+import com.example.darkmode.designer.spi.Category;
+import com.example.darkmode.designer.spi.ComponentStyler;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Compiled category rules for {@link DarkPainter} with hit analytics.
+ * - Name rules (the ABW/BW/DGW/LGB/LLGB lists) resolve once per component class through a
+ *   {@link ClassValue}, keeping the original first-match-wins order; a visit is then one lookup.
+ * - Region rules (type + category below a root class) are looked up per root class; the painter
+ *   carries the innermost region down the sweep, so no ancestor walk happens per visit.
+ * - Stylers limited to a root class share that lookup; the painter also carries every enclosing
+ *   root they name ({@link Roots}), so a styler runs below its root whatever regions nest in between.
+ * - Context rules (role/ancestor predicates) run in a chain after the name rules.
+ * - Stylers (contributed hooks) resolve per component class to a (usually empty) array.
+ * - Every rule has a priority (built-ins: 0): the highest matching one wins, ties go to name, then
+ *   region, then context rules, each in registration order. With only built-in rules a name hit
+ *   returns immediately, exactly as before.
+ * - Every rule counts its hits; {@link #report} lists dead, shadowed and hot rules.
+ * - {@link #compact} drops name rules that can never win and moves frequently hit context rules
+ *   forward, but only past rules they can't overlap with (same category or disjoint component type),
+ *   so classification results never change. It runs once automatically after a warm-up.
+ * EDT only.
+ */
+final class CategoryRules {
+
+    // Classifications before the automatic compaction
+    private static final long AUTO_COMPACT_AFTER = 20_000;
+
+    static final class NameRule {
+        final String token;
+        final Category cat;
+        final int priority;
+        final int order;
+        // simple name this rule matches on ($-tokens: inner part); null for anonymous ($1) tokens
+        final String key;
+        // a fully qualified token matches that one class only, not every class with its simple name
+        final boolean qualified;
+        long hits;
+
+        NameRule(String token, Category cat, int priority, int order) {
+            this.token = token;
+            this.cat = cat;
+            this.priority = priority;
+            this.order = order;
+            this.qualified = token.indexOf('.') >= 0;
+            String k = token.substring(Math.max(token.lastIndexOf('.'), token.lastIndexOf('$')) + 1);
+            this.key = (!k.isEmpty() && Character.isDigit(k.charAt(0))) ? null : k;
+        }
+
+        boolean matches(String simple, String name) {
+            if (qualified) return name.equals(token) || name.endsWith("." + token);
+            if (token.contains("$")) {
+                // inner pattern: simple can be last token; or FQCN may endWith token
+                return (key != null && simple.equals(key)) || name.endsWith(token);
+            }
+            return simple.equals(token) || name.endsWith("." + token);
+        }
+    }
+
+    static final class ContextRule {
+        final String name;
+        final Category cat;
+        final int priority;
+        final Class<?> type;   // the rule can only match instances of this type
+        final Predicate<Component> test;
+        long evaluations, hits;
+
+        ContextRule(String name, Category cat, int priority, Class<?> type, Predicate<Component> test) {
+            this.name = name;
+            this.cat = cat;
+            this.priority = priority;
+            this.type = type;
+            this.test = test;
+        }
+
+        // true if both rules could accept the same component with different results
+        boolean conflictsWith(ContextRule o) {
+            return cat != o.cat && (type.isAssignableFrom(o.type) || o.type.isAssignableFrom(type));
+        }
+    }
+
+    static final class RegionRule {
+        final String root;
+        final Category cat;
+        final int priority;
+        final Class<?> type;
+        long hits;
+
+        RegionRule(String root, Category cat, int priority, Class<?> type) {
+            this.root = root;
+            this.cat = cat;
+            this.priority = priority;
+            this.type = type;
+        }
+    }
+
+    /** Region rules below one root class, highest priority first (none for a styler-only root). */
+    static final class Region {
+        final String root;
+        final RegionRule[] rules;
+        final boolean styled; // some styler is limited to this root
+
+        Region(String root, RegionRule[] rules, boolean styled) {
+            this.root = root;
+            this.rules = rules;
+            this.styled = styled;
+        }
+    }
+
+    /** A contributed styler, optionally limited to one root class. */
+    record StylerRule(String root, Class<?> type, int priority, ComponentStyler<Component> styler) {}
+
+    /** Styler roots enclosing a component, innermost first. */
+    record Roots(String root, Roots outer) {
+        boolean contains(String r) {
+            for (Roots s = this; s != null; s = s.outer) if (s.root.equals(r)) return true;
+            return false;
+        }
+    }
+
+    private static final StylerRule[] NO_STYLERS = new StylerRule[0];
+    private static final RegionRule[] NO_REGION_RULES = new RegionRule[0];
+
+    private final List<NameRule> nameRules = new ArrayList<>();
+    private ContextRule[] chain = new ContextRule[0];
+    private final Map<String, List<RegionRule>> regionRules = new HashMap<>();
+    private final List<StylerRule> stylerRules = new ArrayList<>();
+    private final Set<String> styledRoots = new HashSet<>();
+    private ClassValue<Optional<NameRule>> byClass = newIndex();
+    private ClassValue<Optional<Region>> regionByClass = newRegionIndex();
+    private ClassValue<StylerRule[]> stylersByClass = newStylerIndex();
+    // Highest priority among region/context rules: a name hit at or above it is final
+    private int maxOtherPriority = Integer.MIN_VALUE;
+    private int order;
+    private long classifications;
+    private boolean autoCompacted;
+
+    void addNames(Collection<String> tokens, Category cat) {
+        addNames(tokens, cat, 0);
+    }
+
+    void addNames(Collection<String> tokens, Category cat, int priority) {
+        for (String t : tokens) nameRules.add(new NameRule(t, cat, priority, order++));
+        // stable: equal priorities keep registration order, so "first match wins" still holds
+        nameRules.sort((a, b) -> Integer.compare(b.priority, a.priority));
+        byClass = newIndex();
+    }
+
+    void addContext(String name, Category cat, Class<?> type, Predicate<Component> test) {
+        addContext(name, cat, 0, type, test);
+    }
+
+    void addContext(String name, Category cat, int priority, Class<?> type, Predicate<Component> test) {
+        ContextRule[] c = Arrays.copyOf(chain, chain.length + 1);
+        c[c.length - 1] = new ContextRule(name, cat, priority, type, test);
+        Arrays.sort(c, (a, b) -> Integer.compare(b.priority, a.priority)); // stable
+        chain = c;
+        maxOtherPriority = Math.max(maxOtherPriority, priority);
+    }
+
+    void addRegion(String root, Category cat, int priority, Class<?> type) {
+        List<RegionRule> rs = regionRules.computeIfAbsent(root, k -> new ArrayList<>());
+        rs.add(new RegionRule(root, cat, priority, type));
+        rs.sort((a, b) -> Integer.compare(b.priority, a.priority));
+        maxOtherPriority = Math.max(maxOtherPriority, priority);
+        regionByClass = newRegionIndex();
+    }
+
+    @SuppressWarnings("unchecked")
+    void addStyler(String root, Class<?> type, int priority, ComponentStyler<?> styler) {
+        stylerRules.add(new StylerRule(root, type, priority, (ComponentStyler<Component>) styler));
+        stylerRules.sort(Comparator.comparingInt(StylerRule::priority));
+        stylersByClass = newStylerIndex();
+        if (root != null && styledRoots.add(root)) regionByClass = newRegionIndex();
+    }
+
+    boolean hasRegions() {
+        return !regionRules.isEmpty();
+    }
+
+    /** The region or styler root at {@code c} itself (applies to its descendants), or null. */
+    Region regionRootedAt(Component c) {
+        return regionByClass.get(c.getClass()).orElse(null);
+    }
+
+    /** Innermost region with rules enclosing {@code c} (one ancestor walk; sweep entry points only). */
+    Region enclosingRegion(Component c) {
+        if (regionRules.isEmpty()) return null;
+        for (Container p = c.getParent(); p != null; p = p.getParent()) {
+            Region r = regionRootedAt(p);
+            if (r != null && r.rules.length > 0) return r;
+        }
+        return null;
+    }
+
+    /** Styler roots enclosing {@code c}, or null (one ancestor walk; sweep entry points only). */
+    Roots enclosingStylerRoots(Component c) {
+        if (styledRoots.isEmpty()) return null;
+        List<String> found = new ArrayList<>();
+        for (Container p = c.getParent(); p != null; p = p.getParent()) {
+            Region r = regionRootedAt(p);
+            if (r != null && r.styled) found.add(r.root);
+        }
+        Roots roots = null;
+        for (int i = found.size() - 1; i >= 0; i--) roots = new Roots(found.get(i), roots);
+        return roots;
+    }
+
+    /** Contributed stylers for {@code c}'s class, lowest priority first (usually empty). */
+    StylerRule[] stylers(Component c) {
+        return stylersByClass.get(c.getClass());
+    }
+
+    /** Category for {@code c} below {@code region} (nullable), or null when no rule applies. */
+    Category classify(Component c, Region region) {
+        if (++classifications == AUTO_COMPACT_AFTER && !autoCompacted) compact();
+
+        NameRule r = byClass.get(c.getClass()).orElse(null);
+        if (r != null && r.priority >= maxOtherPriority) {
+            r.hits++;
+            return r.cat;
+        }
+        int best = r != null ? r.priority : Integer.MIN_VALUE;
+        Category cat = r != null ? r.cat : null;
+
+        RegionRule hitRegion = null;
+        if (region != null) {
+            for (RegionRule rr : region.rules) {
+                if (rr.priority <= best) break;
+                if (rr.type.isInstance(c)) {
+                    hitRegion = rr;
+                    best = rr.priority;
+                    cat = rr.cat;
+                    break;
+                }
+            }
+        }
+        ContextRule hitContext = null;
+        for (ContextRule cr : chain) {
+            // compaction may reorder equal-or-disjoint rules, so skip rather than stop
+            if (cr.priority <= best || !cr.type.isInstance(c)) continue;
+            cr.evaluations++;
+            if (cr.test.test(c)) {
+                hitContext = cr;
+                best = cr.priority;
+                cat = cr.cat;
+            }
+        }
+
+        if (hitContext != null) hitContext.hits++;
+        else if (hitRegion != null) hitRegion.hits++;
+        else if (r != null) r.hits++;
+        return cat;
+    }
+
+    /** Name rules that can never win: an earlier rule matches everything they match. */
+    List<NameRule> shadowed() {
+        Map<String, NameRule> first = new HashMap<>();
+        Set<String> tokens = new HashSet<>();
+        List<NameRule> out = new ArrayList<>();
+        for (NameRule r : nameRules) {
+            boolean dupToken = !tokens.add(r.token);
+            // an unqualified rule matches every class with its key; a qualified one shadows only its own token
+            boolean dupKey = r.key != null && first.containsKey(r.key);
+            if (!dupKey && r.key != null && !r.qualified) first.put(r.key, r);
+            if (dupToken || dupKey) out.add(r);
+        }
+        return out;
+    }
+
+    /** Drops shadowed name rules and reorders the context chain by hit frequency (result-preserving). */
+    void compact() {
+        autoCompacted = true;
+        Set<NameRule> dead = Collections.newSetFromMap(new IdentityHashMap<>());
+        dead.addAll(shadowed());
+        nameRules.removeIf(dead::contains);
+        byClass = newIndex();
+
+        // stable insertion sort; a rule only moves ahead of rules it can't conflict with
+        ContextRule[] c = chain.clone();
+        for (int i = 1; i < c.length; i++) {
+            for (int j = i; j > 0 && c[j].hits > c[j - 1].hits && !c[j].conflictsWith(c[j - 1]); j--) {
+                ContextRule t = c[j]; c[j] = c[j - 1]; c[j - 1] = t;
+            }
+        }
+        chain = c;
+    }
+
+    /** Dead (never hit), shadowed and hot (top-N by hits) rules. */
+    String report(int topN) {
+        StringBuilder sb = new StringBuilder("Dark painter rule report (")
+                .append(classifications).append(" classifications)\n");
+
+        List<NameRule> shadowed = shadowed();
+        sb.append("Shadowed (can never apply): ").append(shadowed.size()).append('\n');
+        for (NameRule r : shadowed) sb.append("  ").append(r.cat).append(' ').append(r.token).append('\n');
+
+        List<String> dead = new ArrayList<>();
+        for (NameRule r : nameRules) if (r.hits == 0 && !shadowed.contains(r)) dead.add(r.cat + " " + r.token);
+        for (ContextRule r : chain) if (r.hits == 0) dead.add(r.cat + " " + r.name + " (context)");
+        for (List<RegionRule> rs : regionRules.values()) {
+            for (RegionRule r : rs) {
+                if (r.hits == 0) dead.add(r.cat + " " + r.type.getSimpleName() + " under " + r.root + " (region)");
+            }
+        }
+        sb.append("Dead (no hits this session): ").append(dead.size()).append('\n');
+        for (String d : dead) sb.append("  ").append(d).append('\n');
+
+        List<Object[]> hot = new ArrayList<>();
+        for (NameRule r : nameRules) if (r.hits > 0) hot.add(new Object[]{r.hits, r.cat + " " + r.token});
+        for (ContextRule r : chain) {
+            if (r.hits > 0) hot.add(new Object[]{r.hits, r.cat + " " + r.name + " (context, "
+                    + r.evaluations + " evaluations)"});
+        }
+        for (List<RegionRule> rs : regionRules.values()) {
+            for (RegionRule r : rs) {
+                if (r.hits > 0) hot.add(new Object[]{r.hits, r.cat + " " + r.type.getSimpleName()
+                        + " under " + r.root + " (region)"});
+            }
+        }
+        hot.sort((a, b) -> Long.compare((Long) b[0], (Long) a[0]));
+        sb.append("Hot:\n");
+        for (int i = 0; i < Math.min(topN, hot.size()); i++) {
+            sb.append(String.format("  %8d  %s%n", hot.get(i)[0], hot.get(i)[1]));
+        }
+        return sb.toString();
+    }
+
+    private ClassValue<Optional<NameRule>> newIndex() {
+        // snapshot: later add/compact calls swap in a fresh index instead of mutating this one
+        NameRule[] rules = nameRules.toArray(new NameRule[0]);
+        return new ClassValue<>() {
+            @Override protected Optional<NameRule> computeValue(Class<?> type) {
+                String simple = type.getSimpleName(), name = type.getName();
+                for (NameRule r : rules) if (r.matches(simple, name)) return Optional.of(r);
+                return Optional.empty();
+            }
+        };
+    }
+
+    private ClassValue<Optional<Region>> newRegionIndex() {
+        Map<String, Region> regions = new HashMap<>();
+        regionRules.forEach((root, rs) ->
+                regions.put(root, new Region(root, rs.toArray(NO_REGION_RULES), styledRoots.contains(root))));
+        for (String root : styledRoots) regions.putIfAbsent(root, new Region(root, NO_REGION_RULES, true));
+        return new ClassValue<>() {
+            @Override protected Optional<Region> computeValue(Class<?> type) {
+                return Optional.ofNullable(regions.get(type.getName()));
+            }
+        };
+    }
+
+    private ClassValue<StylerRule[]> newStylerIndex() {
+        StylerRule[] rules = stylerRules.toArray(NO_STYLERS);
+        return new ClassValue<>() {
+            @Override protected StylerRule[] computeValue(Class<?> type) {
+                List<StylerRule> out = new ArrayList<>();
+                for (StylerRule s : rules) if (s.type().isAssignableFrom(type)) out.add(s);
+                return out.isEmpty() ? NO_STYLERS : out.toArray(NO_STYLERS);
+            }
+        };
+    }
+}
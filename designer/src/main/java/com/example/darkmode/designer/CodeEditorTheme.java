@@ -0,0 +1,122 @@
+package com.example.darkmode.designer;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.Style;
+import org.fife.ui.rsyntaxtextarea.SyntaxScheme;
+import org.fife.ui.rsyntaxtextarea.TokenTypes;
+
+import java.awt.*;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Dark theme for the Designer's script / expression / query editors (RSyntaxTextArea).
+ * - One {@link SyntaxScheme} is built once and shared by every editor; its styles use the
+ *   {@link ThemeTokens} CODE_* colors, so a palette switch is just a repaint (no re-tokenizing,
+ *   no per-editor style copies).
+ * - Styles leave the font null (= the editor's own font), so RSyntaxTextArea's base-font updates
+ *   never mutate the shared scheme.
+ * - Each editor's original scheme and colors are remembered weakly and restored when going light.
+ * Only created once the painter has seen an RSyntaxTextArea (matched by class name), so the painter
+ * keeps working where the library isn't present. EDT only.
+ */
+final class CodeEditorTheme {
+
+    /** Original look of an editor before it got the dark scheme. */
+    private record Saved(SyntaxScheme scheme, Color bg, Color fg, Color caret, Color selection, Color line,
+                         boolean opaque) {}
+
+    private final SyntaxScheme dark = buildScheme();
+    private final Map<RSyntaxTextArea, Saved> saved = new WeakHashMap<>();
+    private final PaintCounters counters;
+
+    CodeEditorTheme(PaintCounters counters) {
+        this.counters = counters;
+    }
+
+    /**
+     * Puts the shared dark scheme on {@code c} (an RSyntaxTextArea). The scheme is set once; the
+     * editor colors are re-checked on every call because the generic text shaping runs first.
+     */
+    void apply(Component c) {
+        RSyntaxTextArea ta = (RSyntaxTextArea) c;
+        if (ta.getSyntaxScheme() != dark) {
+            saved.putIfAbsent(ta, new Saved(ta.getSyntaxScheme(), ta.getBackground(), ta.getForeground(),
+                    ta.getCaretColor(), ta.getSelectionColor(), ta.getCurrentLineHighlightColor(), ta.isOpaque()));
+            ta.setSyntaxScheme(dark);
+            counters.setterCalls++;
+        }
+        // only what differs (the generic text shaping may have run first)
+        if (ta.getBackground() != ThemeTokens.CODE_BG) { ta.setBackground(ThemeTokens.CODE_BG); counters.setterCalls++; }
+        if (ta.getForeground() != ThemeTokens.CODE_TEXT) { ta.setForeground(ThemeTokens.CODE_TEXT); counters.setterCalls++; }
+        if (!ta.isOpaque()) { ta.setOpaque(true); counters.setterCalls++; }
+        if (ta.getCaretColor() != ThemeTokens.TEXT) { ta.setCaretColor(ThemeTokens.TEXT); counters.setterCalls++; }
+        if (ta.getSelectionColor() != ThemeTokens.TEXT_SELECTION) {
+            ta.setSelectionColor(ThemeTokens.TEXT_SELECTION);
+            counters.setterCalls++;
+        }
+        if (ta.getCurrentLineHighlightColor() != ThemeTokens.CODE_LINE) {
+            ta.setCurrentLineHighlightColor(ThemeTokens.CODE_LINE);
+            counters.setterCalls++;
+        }
+    }
+
+    /** Gives {@code c} its original scheme and colors back; no-op if it was never themed. */
+    void restore(Component c) {
+        RSyntaxTextArea ta = (RSyntaxTextArea) c;
+        Saved s = saved.remove(ta);
+        if (s == null) return;
+        ta.setSyntaxScheme(s.scheme());
+        ta.setBackground(s.bg());
+        ta.setForeground(s.fg());
+        ta.setCaretColor(s.caret());
+        ta.setSelectionColor(s.selection());
+        ta.setCurrentLineHighlightColor(s.line());
+        ta.setOpaque(s.opaque());
+        counters.setterCalls += 7;
+    }
+
+    int themedCount() {
+        return saved.size();
+    }
+
+    private static SyntaxScheme buildScheme() {
+        SyntaxScheme scheme = new SyntaxScheme(true);
+        Style[] styles = new Style[Math.max(scheme.getStyleCount(), TokenTypes.DEFAULT_NUM_TOKEN_TYPES)];
+        for (int i = 0; i < styles.length; i++) styles[i] = new Style(ThemeTokens.CODE_TEXT);
+
+        Color comment = ThemeTokens.CODE_COMMENT, keyword = ThemeTokens.CODE_KEYWORD;
+        Color string = ThemeTokens.CODE_STRING, number = ThemeTokens.CODE_NUMBER;
+        Color function = ThemeTokens.CODE_FUNCTION;
+        styles[TokenTypes.COMMENT_EOL] = new Style(comment);
+        styles[TokenTypes.COMMENT_MULTILINE] = new Style(comment);
+        styles[TokenTypes.COMMENT_DOCUMENTATION] = new Style(comment);
+        styles[TokenTypes.COMMENT_KEYWORD] = new Style(keyword);
+        styles[TokenTypes.COMMENT_MARKUP] = new Style(comment);
+        styles[TokenTypes.MARKUP_COMMENT] = new Style(comment);
+        styles[TokenTypes.RESERVED_WORD] = new Style(keyword);
+        styles[TokenTypes.RESERVED_WORD_2] = new Style(keyword);
+        styles[TokenTypes.DATA_TYPE] = new Style(keyword);
+        styles[TokenTypes.LITERAL_BOOLEAN] = new Style(keyword);
+        styles[TokenTypes.PREPROCESSOR] = new Style(keyword);
+        styles[TokenTypes.MARKUP_TAG_NAME] = new Style(keyword);
+        styles[TokenTypes.FUNCTION] = new Style(function);
+        styles[TokenTypes.ANNOTATION] = new Style(function);
+        styles[TokenTypes.MARKUP_TAG_ATTRIBUTE] = new Style(function);
+        styles[TokenTypes.LITERAL_NUMBER_DECIMAL_INT] = new Style(number);
+        styles[TokenTypes.LITERAL_NUMBER_FLOAT] = new Style(number);
+        styles[TokenTypes.LITERAL_NUMBER_HEXADECIMAL] = new Style(number);
+        styles[TokenTypes.LITERAL_STRING_DOUBLE_QUOTE] = new Style(string);
+        styles[TokenTypes.LITERAL_CHAR] = new Style(string);
+        styles[TokenTypes.LITERAL_BACKQUOTE] = new Style(string);
+        styles[TokenTypes.REGEX] = new Style(string);
+        styles[TokenTypes.MARKUP_TAG_ATTRIBUTE_VALUE] = new Style(string);
+        styles[TokenTypes.MARKUP_CDATA] = new Style(string);
+        styles[TokenTypes.ERROR_IDENTIFIER] = new Style(ThemeTokens.TEXT, null, null, true);
+        styles[TokenTypes.ERROR_NUMBER_FORMAT] = new Style(number, null, null, true);
+        styles[TokenTypes.ERROR_STRING_DOUBLE] = new Style(string, null, null, true);
+        styles[TokenTypes.ERROR_CHAR] = new Style(string, null, null, true);
+        scheme.setStyles(styles);
+        return scheme;
+    }
+}
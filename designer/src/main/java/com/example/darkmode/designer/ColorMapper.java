@@ -0,0 +1,199 @@
+package com.example.darkmode.designer;
+
+import javax.swing.plaf.UIResource;
+import java.awt.*;
+
+/**
+ * Maps arbitrary (OEM) colors to dark equivalents with the same hue, memoized per ARGB value.
+ * - Mapping: HSL lightness flipped onto the palette's GRAY_BG..TEXT range; chroma (max - min) and
+ *   alpha are kept, so pastels stay muted and tints keep their hue.
+ * - Cache: open addressing over one long[] (key ARGB, mapped RGB and LIGHT/NEUTRAL flags packed per
+ *   slot), so a lookup is a multiply, a mask and usually one probe: no boxing, no float math
+ *   after the first sighting of a color. The matching Color objects are kept in a parallel array.
+ * - Light = HSL lightness >= 0.7 (light grays, pastel highlights, tinted whites), not just near-white.
+ * Dropped on palette switches ({@link #paletteChanged()}). EDT only (sweep and Swing painting).
+ */
+final class ColorMapper {
+
+    static final int LIGHT   = 1 << 24; // lightness >= 0.7
+    static final int NEUTRAL = 1 << 25; // gray-ish: chroma below NEUTRAL_CHROMA
+
+    private static final int LIGHT_SUM = 357;      // max + min (0..510): 0.7 * 510
+    private static final int NEUTRAL_CHROMA = 16;  // max - min (0..255)
+    private static final long USED = 1L << 63;
+    private static final int INITIAL = 256;
+
+    private long[] slots = new long[INITIAL];
+    private Color[] colors = new Color[INITIAL];
+    private int size;
+    private float lo, hi; // target lightness range (palette)
+
+    ColorMapper() {
+        paletteChanged();
+    }
+
+    /** New palette values: everything cached is stale. */
+    void paletteChanged() {
+        lo = lightness(ThemeTokens.GRAY_BG.getRGB());
+        hi = lightness(ThemeTokens.TEXT.getRGB());
+        slots = new long[INITIAL];
+        colors = new Color[INITIAL];
+        size = 0;
+    }
+
+    /** ARGB of the dark equivalent of {@code argb}. */
+    int map(int argb) {
+        return (argb & 0xff000000) | (info(slot(argb)) & 0xffffff);
+    }
+
+    boolean isLight(Color c) {
+        return c != null && (info(slot(c.getRGB())) & LIGHT) != 0;
+    }
+
+    boolean isNeutral(Color c) {
+        return c != null && (info(slot(c.getRGB())) & NEUTRAL) != 0;
+    }
+
+    /** Dark equivalent of {@code c} as a (shared, immutable) Color; for painting. */
+    Color color(Color c) {
+        if (c == null) return null;
+        int i = slot(c.getRGB());
+        Color m = colors[i];
+        if (m == null) {
+            m = new Color(c.getRGB() & 0xff000000 | info(i) & 0xffffff, true);
+            colors[i] = m;
+        }
+        return m;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // ===== Table =====
+    private int info(int slot) {
+        return (int) (slots[slot] & 0x3ffffff);
+    }
+
+    // Slot holding argb, computed and inserted on a miss
+    private int slot(int argb) {
+        int mask = slots.length - 1;
+        for (int i = hash(argb) & mask; ; i = (i + 1) & mask) {
+            long e = slots[i];
+            if (e == 0) {
+                if ((size + 1) * 2 > slots.length) {
+                    grow();
+                    return slot(argb);
+                }
+                slots[i] = USED | (argb & 0xffffffffL) << 26 | compute(argb);
+                size++;
+                return i;
+            }
+            if ((int) (e >>> 26) == argb) return i;
+        }
+    }
+
+    private void grow() {
+        long[] old = slots;
+        Color[] oldColors = colors;
+        slots = new long[old.length * 2];
+        colors = new Color[old.length * 2];
+        int mask = slots.length - 1;
+        for (int j = 0; j < old.length; j++) {
+            if (old[j] == 0) continue;
+            int i = hash((int) (old[j] >>> 26)) & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = old[j];
+            colors[i] = oldColors[j];
+        }
+    }
+
+    private static int hash(int argb) {
+        int h = argb * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // ===== Mapping =====
+    // mapped RGB | LIGHT | NEUTRAL
+    private int compute(int argb) {
+        int r = (argb >> 16) & 0xff, g = (argb >> 8) & 0xff, b = argb & 0xff;
+        int max = Math.max(r, Math.max(g, b)), min = Math.min(r, Math.min(g, b));
+        int flags = (max + min >= LIGHT_SUM ? LIGHT : 0) | (max - min < NEUTRAL_CHROMA ? NEUTRAL : 0);
+        return flags | remap(argb, lo, hi);
+    }
+
+    // HSL with the lightness flipped; chroma is kept
+    static int remap(int argb, float lo, float hi) {
+        float r = ((argb >> 16) & 0xff) / 255f, g = ((argb >> 8) & 0xff) / 255f, b = (argb & 0xff) / 255f;
+        float max = Math.max(r, Math.max(g, b)), min = Math.min(r, Math.min(g, b));
+        float l = (max + min) / 2f, chroma = max - min;
+        float h = 0f;
+        if (chroma > 0f) {
+            if (max == r) h = ((g - b) / chroma + (g < b ? 6f : 0f)) / 6f;
+            else if (max == g) h = ((b - r) / chroma + 2f) / 6f;
+            else h = ((r - g) / chroma + 4f) / 6f;
+        }
+        float l2 = lo + (1f - l) * (hi - lo);
+        float span = 1f - Math.abs(2f * l2 - 1f);
+        float s2 = span > 0f ? Math.min(1f, chroma / span) : 0f;
+        return hslToRgb(h, s2, l2);
+    }
+
+    private static int hslToRgb(float h, float s, float l) {
+        if (s == 0f) {
+            int v = Math.round(l * 255f);
+            return (v << 16) | (v << 8) | v;
+        }
+        float q = l < 0.5f ? l * (1f + s) : l + s - l * s;
+        float p = 2f * l - q;
+        int r = Math.round(hue(p, q, h + 1f / 3f) * 255f);
+        int g = Math.round(hue(p, q, h) * 255f);
+        int b = Math.round(hue(p, q, h - 1f / 3f) * 255f);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static float hue(float p, float q, float t) {
+        if (t < 0f) t += 1f;
+        if (t > 1f) t -= 1f;
+        if (t < 1f / 6f) return p + (q - p) * 6f * t;
+        if (t < 1f / 2f) return q;
+        if (t < 2f / 3f) return p + (q - p) * (2f / 3f - t) * 6f;
+        return p;
+    }
+
+    private static float lightness(int rgb) {
+        int r = (rgb >> 16) & 0xff, g = (rgb >> 8) & 0xff, b = rgb & 0xff;
+        return (Math.max(r, Math.max(g, b)) + Math.min(r, Math.min(g, b))) / 510f;
+    }
+
+    /**
+     * A component's dark stand-in for an OEM color. Like {@link ThemeColor} its value follows the
+     * palette (read through the mapper on each getRGB), and it remembers the original for going light.
+     */
+    static final class Mapped extends Color implements UIResource {
+        private final Color source;
+        private final ColorMapper mapper;
+
+        Mapped(Color source, ColorMapper mapper) {
+            super(mapper.map(source.getRGB()), true);
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        Color source() {
+            return source;
+        }
+
+        @Override public int getRGB()   { return mapper.map(source.getRGB()); }
+        @Override public int getRed()   { return (getRGB() >> 16) & 0xff; }
+        @Override public int getGreen() { return (getRGB() >> 8) & 0xff; }
+        @Override public int getBlue()  { return getRGB() & 0xff; }
+        @Override public int getAlpha() { return (getRGB() >>> 24) & 0xff; }
+        @Override public int hashCode() { return getRGB(); }
+
+        @Override
+        public String toString() {
+            return "Mapped[" + Integer.toHexString(source.getRGB()) + "->" + Integer.toHexString(getRGB()) + "]";
+        }
+    }
+}
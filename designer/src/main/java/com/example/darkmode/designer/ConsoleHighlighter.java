@@ -0,0 +1,335 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.*;
+import java.awt.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Incremental log-level highlighting for the dark Output Console:
+ * - Only newly appended text is copied (on the inserting thread) and tokenized on a background thread.
+ *   Its batch first resets the appended range to the console's base (white) style, so the base and
+ *   the highlights land in order.
+ * - Tokens: log level (whole line tinted for WARN/ERROR), logger name, stack-trace frames / tracebacks.
+ * - Attribute ranges come back to the EDT in coalesced batches, applied under a per-turn time budget,
+ *   so the JTextPane is never re-scanned in full and bursts don't stall the Designer.
+ * - Ranges are kept as stream offsets (document offset + characters trimmed off the head so far), so
+ *   head trimming by ConsoleLimiter clips or drops them instead of sliding them onto other text. Any
+ *   other edit (a remove or insert that isn't at the head/end) voids what is still in flight.
+ * - Colors are ThemeTokens (a palette switch is a repaint); {@link #strip} takes them off when going light.
+ * Lines split across appends are carried over, so a level is recognized even if the line arrives in pieces.
+ */
+final class ConsoleHighlighter implements DocumentListener {
+
+    // ===== Styles (indexes into STYLES) =====
+    private static final int ST_ERROR = 0, ST_WARN = 1, ST_LEVEL_ERROR = 2, ST_LEVEL_WARN = 3,
+            ST_LEVEL_INFO = 4, ST_LEVEL_DEBUG = 5, ST_LOGGER = 6, ST_FRAME = 7, ST_BASE = 8;
+    private static final AttributeSet[] STYLES = {
+            style(ThemeTokens.LOG_ERROR, false),        // ERROR line
+            style(ThemeTokens.LOG_WARN, false),         // WARN line
+            style(ThemeTokens.LOG_ERROR_LEVEL, true),   // ERROR level word
+            style(ThemeTokens.LOG_WARN_LEVEL, true),    // WARN level word
+            style(ThemeTokens.LOG_INFO, true),          // INFO level word
+            style(ThemeTokens.LOG_MUTED, true),         // DEBUG/TRACE level word
+            style(ThemeTokens.LOG_LOGGER, false),       // logger name
+            style(ThemeTokens.LOG_MUTED, false)         // stack frame
+    };
+
+    // Max EDT time per batch before yielding back to the event queue
+    private static final long APPLY_BUDGET_NANOS = 8_000_000L;
+    // Only the head of a line is searched for a level token
+    private static final int LEVEL_SCAN = 80;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dark-console-highlighter");
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    /** Tokenized ranges for one appended chunk; offsets are relative to the stream offset {@code base}. */
+    private record Batch(int epoch, long base, int[] ranges, int count) {}
+
+    private final DarkPainter painter;
+    private final StyledDocument doc;
+    private final AttributeSet baseStyle;
+    private final ConcurrentLinkedQueue<Batch> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Written by the document's writer (under its lock), read on the EDT: characters removed from the
+    // head so far, and a counter bumped by edits that make earlier stream offsets meaningless
+    private volatile long headRemoved;
+    private volatile int epoch;
+
+    // Worker-thread state: unfinished last line of the previous chunk (stream offset, same epoch)
+    private int carryEpoch;
+    private long carryBase;
+    private String carry = "";
+
+    // EDT state: batch partially applied when the time budget ran out
+    private Batch current;
+    private int currentIndex;
+
+    ConsoleHighlighter(DarkPainter painter, StyledDocument doc, AttributeSet baseStyle) {
+        this.painter = painter;
+        this.doc = doc;
+        this.baseStyle = baseStyle;
+    }
+
+    /** Tokenizes text already in the document (when the console turns dark; it is already base-styled). */
+    void highlightExisting() {
+        int len = doc.getLength();
+        if (len > 0) submit(0, len, false);
+    }
+
+    @Override public void insertUpdate(DocumentEvent e) {
+        if (e.getOffset() + e.getLength() != doc.getLength()) epoch++; // not an append: stream offsets shift
+        if (painter.isDarkMode()) submit(e.getOffset(), e.getLength(), true);
+    }
+
+    @Override public void removeUpdate(DocumentEvent e) {
+        if (e.getOffset() == 0) headRemoved += e.getLength(); // head trim: later text keeps its stream offset
+        else epoch++;
+    }
+
+    @Override public void changedUpdate(DocumentEvent e) {}
+
+    private void submit(int offset, int length, boolean appended) {
+        String text;
+        try {
+            text = doc.getText(offset, length);
+        } catch (BadLocationException ex) {
+            return;
+        }
+        int ep = epoch;
+        long base = headRemoved + offset;
+        WORKER.execute(() -> tokenize(ep, base, text, appended));
+    }
+
+    // ===== Worker thread =====
+    // Plain values only: the document is never read here
+    private void tokenize(int ep, long chunkBase, String chunk, boolean appended) {
+        // Prepend the unfinished line from the previous chunk (if it directly precedes this one)
+        long base = chunkBase;
+        String text = chunk;
+        if (!carry.isEmpty() && carryEpoch == ep && carryBase + carry.length() == chunkBase) {
+            base = carryBase;
+            text = carry + chunk;
+        }
+
+        int[] ranges = new int[24];
+        int count = 0;
+        if (appended) { // the new text itself: base style under the highlights
+            ranges[count++] = (int) (chunkBase - base);
+            ranges[count++] = chunk.length();
+            ranges[count++] = ST_BASE;
+        }
+        int lineStart = 0, n = text.length();
+        while (lineStart < n) {
+            int nl = text.indexOf('\n', lineStart);
+            if (nl < 0) break; // unfinished line: carry it over
+            int[] r = tokenizeLine(text, lineStart, nl);
+            if (r != null) {
+                if (count + r.length > ranges.length) {
+                    ranges = java.util.Arrays.copyOf(ranges, Math.max(ranges.length * 2, count + r.length));
+                }
+                for (int i = 0; i < r.length; i += 3) {
+                    int start = r[i];
+                    // coalesce with the previous range (e.g. consecutive stack frames) to save EDT calls
+                    if (count > 0 && ranges[count - 1] == r[i + 2]
+                            && ranges[count - 3] + ranges[count - 2] == start) {
+                        ranges[count - 2] += r[i + 1];
+                        continue;
+                    }
+                    ranges[count++] = start;
+                    ranges[count++] = r[i + 1];
+                    ranges[count++] = r[i + 2];
+                }
+            }
+            lineStart = nl + 1;
+        }
+
+        carryEpoch = ep;
+        carryBase = base + lineStart;
+        carry = lineStart < n ? text.substring(lineStart) : "";
+
+        if (count > 0) {
+            ready.add(new Batch(ep, base, ranges, count));
+            if (flushScheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    /**
+     * Returns (start, length, style) triples for one line, or null when nothing is highlighted.
+     * Whole-line ranges include the trailing newline so consecutive lines can be coalesced.
+     */
+    private static int[] tokenizeLine(String s, int from, int to) {
+        int i = from;
+        while (i < to && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) i++;
+
+        // Stack frames: Java "at pkg.Cls.m(File.java:1)", Jython 'File "...", line 3, in f'
+        if (s.startsWith("at ", i) || s.startsWith("File \"", i) || s.startsWith("... ", i)) {
+            return new int[]{from, to - from + 1, ST_FRAME};
+        }
+        if (s.startsWith("Caused by:", i) || s.startsWith("Traceback (", i)) {
+            return new int[]{from, to - from + 1, ST_ERROR};
+        }
+
+        // Level word near the head of the line
+        int scanEnd = Math.min(to, from + LEVEL_SCAN);
+        for (int p = i; p < scanEnd; p++) {
+            char ch = s.charAt(p);
+            if (ch < 'D' || ch > 'W') continue;
+            if (p > from && Character.isLetterOrDigit(s.charAt(p - 1))) continue;
+            int lv = levelIndex(s, p, scanEnd);
+            if (lv < 0) continue;
+            int len = LEVELS[lv].length();
+
+            int wordStyle, lineStyle;
+            if (lv <= LAST_ERROR) { wordStyle = ST_LEVEL_ERROR; lineStyle = ST_ERROR; }
+            else if (lv <= LAST_WARN) { wordStyle = ST_LEVEL_WARN; lineStyle = ST_WARN; }
+            else if (lv <= LAST_INFO) { wordStyle = ST_LEVEL_INFO; lineStyle = -1; }
+            else { wordStyle = ST_LEVEL_DEBUG; lineStyle = -1; }
+            int[] logger = loggerAfter(s, p + len, to);
+            int size = 3 + (lineStyle >= 0 ? 3 : 0) + (logger != null ? 3 : 0);
+            int[] out = new int[size];
+            int k = 0;
+            if (lineStyle >= 0) { out[k++] = from; out[k++] = to - from + 1; out[k++] = lineStyle; }
+            out[k++] = p; out[k++] = len; out[k++] = wordStyle;
+            if (logger != null) { out[k++] = logger[0]; out[k++] = logger[1]; out[k] = ST_LOGGER; }
+            return out;
+        }
+        return null;
+    }
+
+    // Ordered by severity; LAST_* mark the end of each group
+    private static final String[] LEVELS = {
+            "ERROR", "SEVERE", "FATAL", "WARNING", "WARN", "INFO", "DEBUG", "TRACE", "FINEST", "FINER", "FINE"
+    };
+    private static final int LAST_ERROR = 2, LAST_WARN = 4, LAST_INFO = 5;
+
+    private static int levelIndex(String s, int p, int end) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            String lv = LEVELS[i];
+            int e = p + lv.length();
+            if (e <= end && s.startsWith(lv, p) && (e == end || !Character.isLetterOrDigit(s.charAt(e)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Dotted identifier (optionally in [..]) following the level, e.g. "WARN [c.i.Foo] ..." / "ERROR c.i.Foo - ..."
+    private static int[] loggerAfter(String s, int p, int to) {
+        int end = Math.min(to, p + 160);
+        while (p < end && (s.charAt(p) == ' ' || s.charAt(p) == '[' || s.charAt(p) == '|' || s.charAt(p) == ':')) p++;
+        int start = p;
+        boolean dotted = false;
+        while (p < end) {
+            char ch = s.charAt(p);
+            if (ch == '.') dotted = true;
+            else if (!Character.isJavaIdentifierPart(ch)) break;
+            p++;
+        }
+        return (dotted && p - start > 2) ? new int[]{start, p - start} : null;
+    }
+
+    // ===== EDT =====
+    private void flush() {
+        ThemeEvents.ConsoleRestyle ev = new ThemeEvents.ConsoleRestyle();
+        ev.begin();
+        try {
+            flushBatches(ev);
+        } finally {
+            ev.end();
+            if (ev.shouldCommit()) {
+                ev.kind = "highlight";
+                ev.commit();
+            }
+        }
+    }
+
+    private void flushBatches(ThemeEvents.ConsoleRestyle ev) {
+        long deadline = System.nanoTime() + APPLY_BUDGET_NANOS;
+        while (true) {
+            if (current == null) {
+                current = ready.poll();
+                currentIndex = 0;
+                if (current == null) break;
+            }
+            if (current.epoch() != epoch || !painter.isDarkMode()) { // edited in between, or gone light
+                current = null;
+                continue;
+            }
+            long base = current.base() - headRemoved; // document offset of the batch base
+            int docLen = doc.getLength();
+            int[] r = current.ranges();
+            while (currentIndex < current.count()) {
+                long from = base + r[currentIndex];
+                long len = r[currentIndex + 1];
+                int style = r[currentIndex + 2];
+                AttributeSet st = style == ST_BASE ? baseStyle : STYLES[style];
+                currentIndex += 3;
+                // clip what ConsoleLimiter trimmed away in the meantime
+                if (from < 0) {
+                    len += from;
+                    from = 0;
+                }
+                if (len > 0 && from + len <= docLen) {
+                    doc.setCharacterAttributes((int) from, (int) len, st, false);
+                    ev.rangeLength += (int) len;
+                }
+                if ((currentIndex & 63) == 0 && System.nanoTime() > deadline) {
+                    SwingUtilities.invokeLater(this::flush);
+                    return;
+                }
+            }
+            current = null;
+        }
+        flushScheduled.set(false);
+        // a batch may have arrived between the last poll and clearing the flag
+        if (!ready.isEmpty() && flushScheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(this::flush);
+    }
+
+    /**
+     * Light mode: takes the dark colors (base and highlights) back off the text. Runs whose foreground
+     * is one of our tokens lose it (and the bold of a level word); OEM attributes stay.
+     */
+    static void strip(StyledDocument doc) {
+        ThemeEvents.ConsoleRestyle ev = new ThemeEvents.ConsoleRestyle();
+        ev.begin();
+        Element root = doc.getDefaultRootElement();
+        for (int i = 0; i < root.getElementCount(); i++) {
+            Element par = root.getElement(i);
+            for (int j = 0; j < par.getElementCount(); j++) {
+                Element run = par.getElement(j);
+                AttributeSet a = run.getAttributes();
+                if (!(a.getAttribute(StyleConstants.Foreground) instanceof ThemeColor fg)) continue;
+                SimpleAttributeSet s = new SimpleAttributeSet(a);
+                s.removeAttribute(StyleConstants.Foreground);
+                if (fg.name().startsWith("LOG_")) s.removeAttribute(StyleConstants.Bold);
+                int len = Math.min(run.getEndOffset(), doc.getLength()) - run.getStartOffset();
+                if (len <= 0) continue; // the implicit final newline
+                doc.setCharacterAttributes(run.getStartOffset(), len, s, true);
+                ev.rangeLength += len;
+            }
+        }
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.kind = "strip";
+            ev.commit();
+        }
+    }
+
+    private static AttributeSet style(Color fg, boolean bold) {
+        SimpleAttributeSet set = new SimpleAttributeSet();
+        StyleConstants.setForeground(set, fg);
+        if (bold) StyleConstants.setBold(set, true);
+        return set;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+/**
+ * Optional ring-buffer behaviour for the dark Output Console:
+ * - Once the document exceeds the line or character cap, the oldest whole lines are removed.
+ * - Trimming happens in batches (down to {@link #TRIM_TO} of the cap), so the remove cost is
+ *   amortized and the per-append cost stays flat regardless of session length.
+ * - Removal only touches the head of the document; retained text keeps its dark attributes.
+ * Caps are read from the painter on every check, so changing them takes effect immediately.
+ */
+final class ConsoleLimiter implements DocumentListener {
+
+    // Trim down to 80% of the cap so we don't trim again on the very next append
+    private static final double TRIM_TO = 0.8;
+
+    private final DarkPainter painter;
+    private final Document doc;
+    private boolean scheduled;
+
+    ConsoleLimiter(DarkPainter painter, Document doc) {
+        this.painter = painter;
+        this.doc = doc;
+    }
+
+    @Override public void insertUpdate(DocumentEvent e) {
+        // Documents can't be mutated from inside a listener; coalesce into one trim per EDT turn
+        if (!scheduled && overCap()) {
+            scheduled = true;
+            SwingUtilities.invokeLater(this::trim);
+        }
+    }
+    @Override public void removeUpdate(DocumentEvent e) {}
+    @Override public void changedUpdate(DocumentEvent e) {}
+
+    private boolean overCap() {
+        if (!painter.isDarkMode()) return false;
+        int maxLines = painter.consoleMaxLines(), maxChars = painter.consoleMaxChars();
+        return (maxLines > 0 && doc.getDefaultRootElement().getElementCount() > maxLines)
+                || (maxChars > 0 && doc.getLength() > maxChars);
+    }
+
+    private void trim() {
+        scheduled = false;
+        if (!overCap()) return;
+
+        int maxLines = painter.consoleMaxLines(), maxChars = painter.consoleMaxChars();
+        Element root = doc.getDefaultRootElement();
+        int lines = root.getElementCount();
+        int len = doc.getLength();
+        int cut = 0;
+
+        if (maxLines > 0 && lines > maxLines) {
+            int drop = lines - (int) (maxLines * TRIM_TO);
+            cut = root.getElement(Math.min(drop, lines) - 1).getEndOffset();
+        }
+        if (maxChars > 0 && len > maxChars) {
+            // round up to the end of the line containing the cut point (whole lines only)
+            int want = len - (int) (maxChars * TRIM_TO);
+            cut = Math.max(cut, root.getElement(root.getElementIndex(want)).getEndOffset());
+        }
+        cut = Math.min(cut, len);
+        if (cut <= 0) return;
+
+        try {
+            doc.remove(0, cut);
+        } catch (BadLocationException ignored) {
+            // document changed underneath us; the next append re-checks the cap
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.darkmode.designer;
 
 import javax.swing.*;
-import javax.swing.event.DocumentEvent;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.text.*;
 import java.awt.*;
-import java.awt.event.AWTEventListener;
 import java.awt.event.ContainerAdapter;
 import java.awt.event.ContainerEvent;
 import java.awt.image.BufferedImage;
 import java.util.*;
+import com.example.darkmode.designer.spi.Category;
+import com.example.darkmode.designer.spi.ComponentStyler;
+import com.example.darkmode.designer.spi.ThemeContribution;
+import com.example.darkmode.designer.spi.ThemeRegistry;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import javax.swing.table.JTableHeader;
 import javax.swing.tree.DefaultTreeCellRenderer;
@@ -24,33 +31,33 @@ import javax.swing.table.TableColumn;
  * - Uses categorized simple-name lists (ported from your Python) but avoids brittle $inner FQCNs.
  * - Keeps text white while avoiding unwanted opaque backgrounds ("white boxes") by only forcing opacity
  *   for a small safe allowlist. Most text components remain transparent; their parents get the gray bg.
- * - Repaints on WINDOW_OPENED and on dynamic component adds (ContainerListener + invokeLater).
+ * - Repaints on WINDOW_OPENED and on dynamic component adds (ContainerListener).
+ * - Heals single components whose colors, opacity, renderer or UI get reset after the fact (StyleHealer).
  * - Special handling for JTextPane console (white text on near-black) and popups.
  */
 public final class DarkPainter {
 
     // ===== Colors (tuned for good contrast with white text) =====
-    private static final Color GRAY_BG      = new Color(60, 63, 65);    // main background (dark gray)
-    private static final Color GRAY_BG_ALT  = new Color(41, 49, 52);    // “almost black” (for console panes / gutters)
-    private static final Color DARK_GRAY    = new Color(96, 96, 96);    // accent panels / headers
-    private static final Color WHITE        = Color.WHITE;
-    private static final Color BLACK        = Color.BLACK;
-    private static final Color LIGHT_GRAY   = new Color(180, 180, 180);
-    private static final Color LIGHT2_GRAY  = new Color(241, 241, 241);
-    private static final Color MENU_ITEM_BG = new Color(
-            (int) (DARK_GRAY.getRed() * 0.84),
-            (int) (DARK_GRAY.getGreen() * 0.93),
-            DARK_GRAY.getBlue()
-    );
+    // Shared theme tokens: values come from the active Palette, so palette swaps need no tree walk.
+    private static final Color GRAY_BG      = ThemeTokens.GRAY_BG;      // main background (dark gray)
+    private static final Color GRAY_BG_ALT  = ThemeTokens.GRAY_BG_ALT;  // “almost black” (for console panes / gutters)
+    private static final Color DARK_GRAY    = ThemeTokens.DARK_GRAY;    // accent panels / headers
+    private static final Color WHITE        = ThemeTokens.TEXT;
+    private static final Color BLACK        = ThemeTokens.TEXT_ON_LIGHT;
+    private static final Color LIGHT_GRAY   = ThemeTokens.LIGHT_GRAY;
+    private static final Color LIGHT2_GRAY  = ThemeTokens.LIGHT2_GRAY;
+    private static final Color MENU_ITEM_BG = ThemeTokens.MENU_ITEM_BG; // DARK_GRAY tinted slightly blue
+    private static final Color SELECTION_BG   = ThemeTokens.SELECTION_BG;   // table/tree/list selection
+    private static final Color GRID           = ThemeTokens.GRID;
+    private static final Color TEXT_SELECTION = ThemeTokens.TEXT_SELECTION; // selected text in editors
     // Property Editor table colors
-    private static final Color PE_ROW_BG      = new Color(58, 60, 62);   // normal row
-    private static final Color PE_ROW_ALT_BG  = new Color(52, 54, 56);   // zebra alt
-    private static final Color PE_HOVER_BG    = new Color(70, 73, 76);   // rollover
-    private static final Color PE_SELECT_BG   = new Color(75, 110, 175); // selection
-    private static final String PE_HOOK       = "dark.pe.hooked";
-    private static final String PE_HOVER_ROW  = "dark.pe.hoverRow";
+    private static final Color PE_ROW_BG      = ThemeTokens.PE_ROW_BG;      // normal row
+    private static final Color PE_ROW_ALT_BG  = ThemeTokens.PE_ROW_ALT_BG;  // zebra alt
+    private static final Color PE_HOVER_BG    = ThemeTokens.PE_HOVER_BG;    // rollover
+    private static final Color PE_SELECT_BG   = ThemeTokens.PE_SELECT_BG;   // selection
+    private static final Color PE_GRID        = ThemeTokens.PE_GRID;
 
-    private static final Color SEL_BLUE     = new Color(72, 169, 230);
+    private static final Color SEL_BLUE     = ThemeTokens.SEL_BLUE;
 
     // ===== Public Ancestors we key off (stable FQCNs) =====
     private static final String FQCN_NAV_TREE_PANEL =
@@ -67,14 +74,13 @@ public final class DarkPainter {
             "com.inductiveautomation.ignition.client.util.gui.OutputConsole";
 
     // ===== Category model (from your Python lists) =====
-    enum Cat { ABW, BW, DGW, LGB, LLGB }
     record Spec(Color bg, Color fg, boolean forceOpaque) {}
-    private static final Map<Cat, Spec> DARK = Map.of(
-            Cat.ABW, new Spec(GRAY_BG_ALT, WHITE, false),
-            Cat.BW,  new Spec(GRAY_BG,    WHITE, false),  // NOTE: using gray instead of pure black to avoid harsh contrast
-            Cat.DGW, new Spec(DARK_GRAY,  WHITE, false),
-            Cat.LGB, new Spec(LIGHT_GRAY, BLACK, false),
-            Cat.LLGB,new Spec(LIGHT2_GRAY,BLACK, false)
+    private static final Map<Category, Spec> DARK = Map.of(
+            Category.ABW, new Spec(GRAY_BG_ALT, WHITE, false),
+            Category.BW,  new Spec(GRAY_BG,    WHITE, false),  // NOTE: using gray instead of pure black to avoid harsh contrast
+            Category.DGW, new Spec(DARK_GRAY,  WHITE, false),
+            Category.LGB, new Spec(LIGHT_GRAY, BLACK, false),
+            Category.LLGB,new Spec(LIGHT2_GRAY,BLACK, false)
     );
 
     // ===== Lists (simple-name / endsWith match) =====
@@ -168,16 +174,60 @@ public final class DarkPainter {
 
     private static volatile DarkPainter INSTANCE;
     private volatile boolean darkMode;
-
-    private DarkPainter() {}
+    // Bumped on every mode flip; popups (and other lazily themed parts) restyle when it changes
+    private int themeGeneration;
+    private final PaintCounters counters = new PaintCounters();
+    private final HoverListenerSurgery hoverSurgery = new HoverListenerSurgery();
+    // Per-component bookkeeping (flags, hover row, popup generation); replaces client properties
+    private final PainterState.Table state = new PainterState.Table();
+    // Created on the first RSyntaxTextArea seen (the library is optional at runtime)
+    private CodeEditorTheme codeTheme;
+    private final OpacityOptimizer opacityOptimizer = new OpacityOptimizer(counters);
+    // Restyles single components after OEM resets; replaces blind follow-up sweeps
+    private final StyleHealer healer = new StyleHealer(this::heal);
+    // Dark equivalents of OEM colors (stray light surfaces, Property Editor whites, paint-time engine)
+    private final ColorMapper colors = new ColorMapper();
+    // Force provably-invisible transparency opaque (less overdraw, blit scrolling); see OpacityOptimizer
+    private boolean optimizeOpacity = Boolean.parseBoolean(System.getProperty("darkmode.opacityOptimizer", "true"));
+    // Non-null only while subtree profiling is on (diagnostics)
+    private SubtreeProfiler profiler = Boolean.getBoolean("darkmode.profile") ? new SubtreeProfiler() : null;
+    // Bounded console caps (0 = unbounded); see ConsoleLimiter
+    private volatile int consoleMaxLines = Integer.getInteger("darkmode.console.maxLines", 0);
+    private volatile int consoleMaxChars = Integer.getInteger("darkmode.console.maxChars", 0);
+
+    // Compiled category lists + context predicates, with hit analytics
+    private final CategoryRules rules = new CategoryRules();
+    // Innermost contributed region around the component being visited (carried down the sweep)
+    private CategoryRules.Region region;
+    // Every root a contributed styler is limited to around that component, innermost first
+    private CategoryRules.Roots stylerRoots;
+    // The component being visited is a cell renderer or editor (under a CellRendererPane, table, tree or list)
+    private boolean inCells;
+    // Subtrees the sweep never enters (window classes, region roots, marked components)
+    private ExclusionScopes exclusions = ExclusionScopes.NONE;
+    // Where runtime setting changes are saved (the hook's user profile); null = not persisted
+    private volatile ThemeSettings settings;
+
+    private DarkPainter() {
+        // first match wins: list order, then the context/role rules (replace $Inner hard refs)
+        rules.addNames(ABW, Category.ABW);
+        rules.addNames(BW, Category.BW);
+        rules.addNames(DGW, Category.DGW);
+        rules.addNames(LGB, Category.LGB);
+        rules.addNames(LLGB, Category.LLGB);
+        rules.addContext("NavTreeFilter", Category.ABW, JTextField.class, this::isNavTreeFilter);
+        rules.addContext("PropertyEditorSearch", Category.ABW, JTextField.class, this::isPropertyEditorSearch);
+        rules.addContext("PaletteFilter", Category.ABW, JTextField.class, this::isPaletteFilter);
+        rules.addContext("BindingEditorButtons", Category.DGW, JPanel.class, this::isBindingEditorButtons);
+        rules.addContext("ActionCollectionEditorPanel", Category.DGW, JPanel.class,
+                comp -> isUnder(comp, FQCN_ACTION_COLLECTION_EDITOR));
+    }
 
     public static DarkPainter install() {
         if (INSTANCE != null) return INSTANCE;
         synchronized (DarkPainter.class) {
-            if (INSTANCE == null) {
-                INSTANCE = new DarkPainter();
-                INSTANCE.hookGlobal();
-            }
+            // dormant until dark mode is first turned on: no global hooks, listeners or sweeps
+            if (INSTANCE == null) INSTANCE = new DarkPainter();
         }
         return INSTANCE;
     }
@@ -186,30 +236,356 @@ public final class DarkPainter {
         // (Optional) You could remove listeners here if you need a full teardown.
     }
 
+    /** Work counters (visits, setter calls, listener installs, allocated bytes). EDT only. */
+    PaintCounters counters() {
+        return counters;
+    }
+
+    /**
+     * Bounds the dark Output Console to at most {@code maxLines} lines / {@code maxChars} characters,
+     * trimming the oldest lines in batches. Pass 0 for either cap to leave it unbounded.
+     */
+    public void setConsoleLimit(int maxLines, int maxChars) {
+        int lines = Math.max(0, maxLines), chars = Math.max(0, maxChars);
+        this.consoleMaxLines = lines;
+        this.consoleMaxChars = chars;
+        persist(p -> p.withConsoleLimit(lines, chars));
+    }
+
+    int consoleMaxLines() { return consoleMaxLines; }
+    int consoleMaxChars() { return consoleMaxChars; }
+    boolean isDarkMode() { return darkMode; }
+
+    /**
+     * Switches the dark palette variant. Only the shared color tokens change value, so this costs one
+     * repaint per window and visits no components.
+     */
+    public void setPalette(Palette palette) {
+        if (palette == null || palette == ThemeTokens.active()) return;
+        usePalette(palette);
+        persist(p -> p.withPalette(palette));
+    }
+
+    private void usePalette(Palette palette) {
+        ThemeTokens.apply(palette);
+        colors.paletteChanged();
+        if (paintTime != null && paintTime.isEnabled()) paintTime.paletteChanged();
+        if (darkMode) {
+            for (Window w : Window.getWindows()) {
+                if (w.isDisplayable()) w.repaint();
+            }
+        }
+    }
+
+    public Palette getPalette() {
+        return ThemeTokens.active();
+    }
+
+    // ===== Diagnostics: per-subtree cost profile =====
+    /** Turns per-subtree cost profiling of the sweep on or off (also: -Ddarkmode.profile=true). EDT only. */
+    public void setSubtreeProfiling(boolean on) {
+        profiler = on ? (profiler != null ? profiler : new SubtreeProfiler()) : null;
+    }
+
+    /** Writes the collected profile in folded-stack format (self time in µs) for flame graph tools. */
+    public void writeSubtreeProfile(Appendable out) throws java.io.IOException {
+        if (profiler != null) profiler.writeFolded(out);
+    }
+
+    /** Top-N most expensive subtrees by inclusive time, or an empty string while profiling is off. */
+    public String subtreeProfileReport(int topN) {
+        return profiler != null ? profiler.report(topN) : "";
+    }
+
+    // ===== Opacity optimizer =====
+    /** Turns the opacity/blit optimizer on or off (also: -Ddarkmode.opacityOptimizer=false). EDT only. */
+    public void setOpacityOptimization(boolean on) {
+        if (on == optimizeOpacity) return;
+        optimizeOpacity = on;
+        if (!on) opacityOptimizer.restoreAll();
+        if (darkMode) repaintAll();
+    }
+
+    /** Viewports under {@code root} that could blit-scroll but currently don't. EDT only. */
+    java.util.List<JViewport> blitCandidates(Component root) {
+        return opacityOptimizer.blitCandidates(root);
+    }
+
+    // ===== Exclusion scopes =====
+    /** Client property that excludes a component's whole subtree when set to {@link Boolean#TRUE}. */
+    public static final String EXCLUDE_PROPERTY = "darkmode.exclude";
+
+    /**
+     * Excludes (or re-includes) every window / region root of the given class, by fully-qualified or
+     * simple class name. Takes effect immediately: a newly excluded subtree is reverted to light once and
+     * then never visited again; a re-included one is themed. EDT only.
+     */
+    public void setExcluded(String className, boolean excluded) {
+        ExclusionScopes next = exclusions.withClass(className, excluded);
+        if (next == exclusions) return;
+        updateExclusions(next);
+        java.util.Set<String> classes = next.classes();
+        persist(p -> p.withExclusions(classes));
+    }
+
+    /**
+     * Marks {@code c} (and everything under it) as excluded, or removes the mark. The same as putting
+     * {@link #EXCLUDE_PROPERTY} yourself, except that the painter only starts looking for the property
+     * once this was called, and the change takes effect immediately. EDT only.
+     */
+    public static void markExcluded(JComponent c, boolean excluded) {
+        DarkPainter p = install();
+        p.exclusions = p.exclusions.withMarkers();
+        boolean live = p.hooked && p.darkMode;
+        if (excluded) {
+            if (live && !p.isExcluded(c)) p.revertSubtree(c); // while the sweep can still enter it
+            c.putClientProperty(EXCLUDE_PROPERTY, Boolean.TRUE);
+        } else {
+            c.putClientProperty(EXCLUDE_PROPERTY, null);
+            if (live && !p.isExcluded(c)) {
+                p.attachContainerListenerDeep(c);
+                p.paintTree(c);
+            }
+        }
+    }
+
+    private void updateExclusions(ExclusionScopes next) {
+        ExclusionScopes prev = exclusions;
+        if (next == prev) return;
+        exclusions = next;
+        exclusionsChanged(prev);
+    }
+
+    private void exclusionsChanged(ExclusionScopes prev) {
+        if (!hooked || !darkMode) return; // light: nothing is dark, the next dark sweep honors the scopes
+        for (Window w : Window.getWindows()) {
+            if (w.isDisplayable()) revertNewlyExcluded(w, prev);
+        }
+        repaintAll(); // themes what was re-included (and attaches its listeners)
+    }
+
+    // Light pass over the outermost components that are excluded now but weren't under prev
+    private void revertNewlyExcluded(Component c, ExclusionScopes prev) {
+        if (exclusions.excludes(c)) {
+            if (prev.excludes(c)) return; // was skipped all along: never themed
+            ExclusionScopes now = exclusions;
+            exclusions = prev; // so the pass enters c (it still skips what prev skipped)
+            try {
+                revertSubtree(c);
+            } finally {
+                exclusions = now;
+            }
+            return;
+        }
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) revertNewlyExcluded(ch, prev);
+        }
+    }
+
+    // A light pass over one subtree while the rest stays dark
+    private void revertSubtree(Component c) {
+        paintTree(c, false);
+    }
+
+    // Entry points below the window must look up: an excluded ancestor means the sweep never got here
+    private boolean isExcluded(Component c) {
+        return !exclusions.isEmpty() && (exclusions.excludes(c) || exclusions.excludesAncestorOf(c));
+    }
+
+    // ===== Contributions (other modules' rules, see spi.ThemeContribution) =====
+    /**
+     * Compiles a module's rules and stylers into the painter's dispatch tables and, in dark mode,
+     * re-sweeps open windows so they take effect. A contribution is registered as one unit: if
+     * {@code contribute} throws, none of its rules are kept and the exception propagates. EDT only.
+     */
+    public void register(ThemeContribution contribution) {
+        Recorder recorder = new Recorder();
+        contribution.contribute(recorder);
+        for (Runnable add : recorder.adds) add.run();
+        if (darkMode) repaintAll();
+    }
+
+    // Collects a contribution's rules; they reach the dispatch tables only once contribute returned
+    private final class Recorder implements ThemeRegistry {
+        final ArrayList<Runnable> adds = new ArrayList<>();
+
+        @Override public void names(Category category, int priority, String... classNames) {
+            java.util.List<String> names = Arrays.asList(classNames.clone());
+            adds.add(() -> rules.addNames(names, category, priority));
+        }
+
+        @Override public void region(String rootClassName, Category category, int priority,
+                                     Class<? extends Component> type) {
+            adds.add(() -> rules.addRegion(rootClassName, category, priority, type));
+        }
+
+        @Override public <T extends Component> void rule(String name, Category category, int priority,
+                                                         Class<T> type, Predicate<? super T> test) {
+            adds.add(() -> rules.addContext(name, category, priority, type, comp -> test.test(type.cast(comp))));
+        }
+
+        @Override public <T extends Component> void styler(String rootClassName, Class<T> type, int priority,
+                                                           ComponentStyler<? super T> styler) {
+            adds.add(() -> rules.addStyler(rootClassName, type, priority, styler));
+        }
+    }
+
+    // ===== Diagnostics: category rule analytics =====
+    /** Dead, shadowed and hot (top-N) category rules for this session. EDT only. */
+    public String ruleReport(int topN) {
+        return rules.report(topN);
+    }
+
+    /** Drops rules that can never apply and moves frequent context rules forward. EDT only. */
+    public void compactRules() {
+        rules.compact();
+    }
+
+    // ===== Engines =====
+    // How dark mode is applied; the sweep below unless the profile picks paint-time remapping
+    private ThemeProfile.Engine engine = ThemeProfile.Engine.SWEEP;
+    // Created the first time the paint-time engine is turned on
+    private PaintTimeEngine paintTime;
+
+    /** Switches engines; if dark mode is on, the old engine is turned off and the new one on. EDT only. */
+    void setEngine(ThemeProfile.Engine e) {
+        if (e == null || e == engine) return;
+        useEngine(e);
+        persist(p -> p.withEngine(e));
+    }
+
+    private void useEngine(ThemeProfile.Engine e) {
+        boolean on = darkMode || (paintTime != null && paintTime.isEnabled());
+        if (on) setDarkMode(false);
+        engine = e;
+        if (on) setDarkMode(true);
+    }
+
+    ThemeProfile.Engine engine() {
+        return engine;
+    }
+
+    // ===== Settings =====
+    /** Saves later runtime setting changes (palette, engine, console caps, exclusions) to {@code s}. */
+    void persistTo(ThemeSettings s) {
+        settings = s;
+    }
+
+    /**
+     * Takes over a loaded profile's palette, console caps, exclusions and engine without saving them
+     * back. Caps the profile never stored keep their current (-Ddarkmode.console.*) values; dark mode
+     * itself is left to the caller. EDT only.
+     */
+    void applyProfile(ThemeProfile p) {
+        if (p.palette() != ThemeTokens.active()) usePalette(p.palette());
+        if (p.consoleMaxLines() >= 0) consoleMaxLines = p.consoleMaxLines();
+        if (p.consoleMaxChars() >= 0) consoleMaxChars = p.consoleMaxChars();
+        updateExclusions(exclusions.withClasses(p.exclusions()));
+        if (p.engine() != engine) useEngine(p.engine());
+    }
+
+    private void persist(java.util.function.UnaryOperator<ThemeProfile> change) {
+        ThemeSettings s = settings;
+        if (s != null) s.update(change);
+    }
+
+    // Package-private for the engine benchmark
+    PaintTimeEngine paintTimeEngine() {
+        if (paintTime == null) paintTime = new PaintTimeEngine(colors, counters);
+        return paintTime;
+    }
+
     public void setDarkMode(boolean enabled) {
+        if (engine == ThemeProfile.Engine.PAINT_TIME) {
+            // no sweep, no global hooks: the windows' layers remap colors as they are drawn
+            if (enabled || paintTime != null) paintTimeEngine().setEnabled(enabled);
+            return;
+        }
+        if (!hooked) {
+            // Dormant: nothing was ever themed, so there is nothing to revert
+            if (!enabled) return;
+            hookGlobal();
+        }
+        if (enabled != darkMode) themeGeneration++;
+        if (!enabled && darkMode) {
+            hoverSurgery.restoreAll(); // give OEM hover listeners back
+            opacityOptimizer.restoreAll();
+        }
         this.darkMode = enabled;
-        repaintAll();
-        // pass 2 after EDT settles (mitigates racey LAF/layout flips)
-        SwingUtilities.invokeLater(this::repaintAll);
+        if (!enabled) {
+            healer.clear();
+            queue.clear(); // light: queued subtrees were never themed, nothing to do for them
+        }
+        repaintAll(); // late resets are healed per component, no second pass
+    }
+
+    // ===== Asynchronous theming =====
+    /** How soon a {@link #themeSubtree} request runs relative to other queued theming work. */
+    public enum Priority {
+        /** Before anything else; right away when requested on the EDT (e.g. just before showing a dialog). */
+        URGENT,
+        /** On the next EDT turn. */
+        NORMAL,
+        /** Between other events, a few jobs per EDT turn (content that isn't shown yet); a job is never split. */
+        BACKGROUND
+    }
+
+    // Dynamic adds and themeSubtree requests; see ThemeQueue
+    private final ThemeQueue queue = new ThemeQueue(this::paintAdded);
+
+    /**
+     * Themes {@code root} and its subtree on the EDT, and keeps theming what is added to it later.
+     * Lets a module theme heavy content before showing it, and know when that is done.
+     * - The future completes on the EDT once the subtree is themed (already done when URGENT is
+     *   requested on the EDT). In light mode, with the paint-time engine or for an excluded subtree
+     *   the job does nothing and just completes.
+     * - Requests for a subtree that is already queued are merged (see {@link ThemeQueue}).
+     * Any thread.
+     */
+    public CompletableFuture<Void> themeSubtree(Component root, Priority priority) {
+        Objects.requireNonNull(root, "root");
+        Priority p = priority != null ? priority : Priority.NORMAL;
+        if (EventQueue.isDispatchThread()) return queue.submit(root, p);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        SwingUtilities.invokeLater(() -> queue.submit(root, p).whenComplete((v, e) -> {
+            if (e == null) done.complete(null);
+            else done.completeExceptionally(e);
+        }));
+        return done;
     }
 
     // ===== Global hooks =====
+    // Installed on the first setDarkMode(true), never before (see install)
+    private boolean hooked;
+
     private void hookGlobal() {
-        Toolkit.getDefaultToolkit().addAWTEventListener(windowOpenedListener,
-                AWTEvent.WINDOW_EVENT_MASK | AWTEvent.WINDOW_STATE_EVENT_MASK);
+        hooked = true;
+        // Windows are themed when they get their peer, before the first paint (see WindowHooks)
+        windowHooks.start();
+        // Every popup/menu that opens passes through the selection manager before its first paint
+        MenuSelectionManager.defaultManager().addChangeListener(popupHook);
+        // Focus tint for Property Editor editors (no per-editor FocusListeners)
+        KeyboardFocusManager.getCurrentKeyboardFocusManager()
+                .addPropertyChangeListener("permanentFocusOwner", focusTint);
     }
 
-    private final AWTEventListener windowOpenedListener = e -> {
-        if (e instanceof java.awt.event.WindowEvent we &&
-                we.getID() == java.awt.event.WindowEvent.WINDOW_OPENED) {
-            Window w = we.getWindow();
-            if (w != null) paintWindow(w);
-        }
-    };
+    // Enumerated windows are hooked by repaintAll; see WindowHooks
+    private final WindowHooks windowHooks = new WindowHooks(counters, this::themeIfStale);
+
+    // A window made displayable or shown in a newer theme generation than its last sweep is swept now
+    private void themeIfStale(Window w) {
+        if (!hooked || !w.isDisplayable()) return;
+        PainterState st = state.peek(w);
+        boolean themed = st != null && st.has(PainterState.WINDOW_THEMED);
+        // light mode: a window that was never dark has nothing to revert
+        if (themed ? st.themedGen == themeGeneration : !darkMode) return;
+        paintWindow(w);
+    }
 
     // ===== Painting entry points =====
     private void repaintAll() {
         for (Window w : Window.getWindows()) {
+            windowHooks.hook(w);
             if (w.isDisplayable() || TARGET_WINDOWS.contains(w.getClass().getSimpleName())) {
                 paintWindow(w);
             }
@@ -217,15 +593,90 @@ public final class DarkPainter {
     }
 
     private void paintWindow(Window w) {
-        attachContainerListenerDeep(w);
-        paintDeep(w);
-        w.repaint();
+        ThemeEvents.Pass ev = new ThemeEvents.Pass();
+        ev.begin();
+        long visits = counters.visits;
+        counters.beginPass();
+        healer.mute();
+        CategoryRules.Region outer = region;
+        CategoryRules.Roots outerRoots = stylerRoots;
+        boolean outerCells = inCells;
+        region = null; // windows have no ancestors
+        stylerRoots = null;
+        inCells = false;
+        try {
+            attachContainerListenerDeep(w);
+            paintDeep(w, darkMode);
+        } finally {
+            region = outer;
+            stylerRoots = outerRoots;
+            inCells = outerCells;
+            healer.unmute();
+            counters.endPass();
+        }
+        PainterState st = state.of(w);
+        st.set(PainterState.WINDOW_THEMED);
+        st.themedGen = themeGeneration;
+        // not on screen yet: the first paint will pick everything up, no second one needed
+        if (w.isShowing()) w.repaint();
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.window = w.getClass().getName();
+            ev.components = (int) (counters.visits - visits);
+            ev.commit();
+        }
+    }
+
+    // Entry point for single subtrees (dynamic adds, editors, benchmarks); measured as one pass
+    void paintTree(Component c) {
+        paintTree(c, darkMode);
+    }
+
+    // dark = false is a light pass (reverts), whatever the current mode
+    private void paintTree(Component c, boolean dark) {
+        if (isExcluded(c)) return;
+        counters.beginPass();
+        healer.mute();
+        CategoryRules.Region outer = region;
+        CategoryRules.Roots outerRoots = stylerRoots;
+        boolean outerCells = inCells;
+        region = rules.enclosingRegion(c);
+        stylerRoots = rules.enclosingStylerRoots(c);
+        inCells = isUnderCellHost(c);
+        try {
+            paintDeep(c, dark);
+        } finally {
+            region = outer;
+            stylerRoots = outerRoots;
+            inCells = outerCells;
+            healer.unmute();
+            counters.endPass();
+        }
     }
 
-    private void attachContainerListenerDeep(Component c) {
+    // ThemeQueue worker: dynamic adds and themeSubtree requests (sweep engine, dark only)
+    private void paintAdded(Component child, Priority priority) {
+        if (!hooked || !darkMode || engine != ThemeProfile.Engine.SWEEP || isExcluded(child)) return;
+        ThemeEvents.DynamicAdd ev = new ThemeEvents.DynamicAdd();
+        ev.begin();
+        long visits = counters.visits;
+        attachContainerListenerDeep(child); // what gets added to it later is themed as it arrives
+        paintTree(child);
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.child = child.getClass().getName();
+            ev.components = (int) (counters.visits - visits);
+            ev.priority = priority.name();
+            ev.commit();
+        }
+    }
+
+    void attachContainerListenerDeep(Component c) {
+        if (!exclusions.isEmpty() && exclusions.excludes(c)) return; // nothing to watch in there
         if (c instanceof Container ct) {
             if (!hasContainerListener(ct, DynListener.class)) {
                 ct.addContainerListener(new DynListener());
+                counters.listenerInstalls++;
             }
             for (Component ch : ct.getComponents()) attachContainerListenerDeep(ch);
         }
@@ -238,185 +689,278 @@ public final class DarkPainter {
 
     private final class DynListener extends ContainerAdapter {
         @Override public void componentAdded(ContainerEvent e) {
-            paintDeep(e.getChild());
-            SwingUtilities.invokeLater(() -> paintDeep(e.getChild()));
+            // JTable adds its editor component on every edit (on the EDT): style it once instead of re-sweeping it
+            if (EventQueue.isDispatchThread() && e.getContainer() instanceof JTable t
+                    && e.getChild() == t.getEditorComponent() && state.has(t, PainterState.TB_HOOK | PainterState.PE_HOOK)) {
+                styleCellEditor(t);
+                return;
+            }
+            if (!darkMode) return; // new children were never themed; nothing to revert
+            // now (or first thing on the EDT for adds made elsewhere), merged with anything queued for it
+            themeSubtree(e.getChild(), Priority.URGENT);
         }
     }
 
-    private void removePropertyEditorHoverTrackers(Component c) {
-        if (!isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) return;
-
-        // Strip from this component
-        if (c instanceof JComponent jc) {
-            for (var ml : jc.getMouseListeners()) {
-                String n = ml.getClass().getName();
-                if (n.contains("HoverTracker") || n.contains("ComponentTracker") || n.contains("Highlight")) {
-                    jc.removeMouseListener(ml);
-                }
-            }
-            for (var mml : jc.getMouseMotionListeners()) {
-                String n = mml.getClass().getName();
-                if (n.contains("HoverTracker") || n.contains("ComponentTracker") || n.contains("Highlight")) {
-                    jc.removeMouseMotionListener(mml);
-                }
-            }
+    // ===== Core painter =====
+    private void paintDeep(Component c, boolean dark) {
+        if (c == null) return;
+        if (!exclusions.isEmpty() && exclusions.excludes(c)) return; // excluded: not even visited
+        SubtreeProfiler prof = profiler;
+        if (prof == null) {
+            paintComponentDeep(c, dark);
+            return;
+        }
+        prof.enter(c);
+        try {
+            paintComponentDeep(c, dark);
+        } finally {
+            prof.exit();
         }
+    }
 
-        // Some are installed on parents; walk up a couple levels
-        Container p = c.getParent();
-        for (int i = 0; i < 4 && p != null; i++, p = p.getParent()) {
-            if (p instanceof JComponent pj) {
-                for (var ml : pj.getMouseListeners()) {
-                    String n = ml.getClass().getName();
-                    if (n.contains("HoverTracker") || n.contains("ComponentTracker") || n.contains("Highlight")) {
-                        pj.removeMouseListener(ml);
-                    }
-                }
-                for (var mml : pj.getMouseMotionListeners()) {
-                    String n = mml.getClass().getName();
-                    if (n.contains("HoverTracker") || n.contains("ComponentTracker") || n.contains("Highlight")) {
-                        pj.removeMouseMotionListener(mml);
-                    }
-                }
+    private void paintComponentDeep(Component c, boolean dark) {
+        styleComponent(c, dark);
+
+        // 3) Recurse (a contributed region/styler root scopes its descendants; cell hosts hold only cells)
+        if (c instanceof Container ct) {
+            CategoryRules.Region outer = region;
+            CategoryRules.Roots outerRoots = stylerRoots;
+            boolean outerCells = inCells;
+            CategoryRules.Region inner = rules.regionRootedAt(c);
+            if (inner != null) {
+                if (inner.rules.length > 0) region = inner;
+                if (inner.styled) stylerRoots = new CategoryRules.Roots(inner.root, stylerRoots);
+            }
+            if (isCellHost(c)) inCells = true;
+            try {
+                for (Component child : ct.getComponents()) paintDeep(child, dark);
+            } finally {
+                region = outer;
+                stylerRoots = outerRoots;
+                inCells = outerCells;
             }
         }
     }
 
+    // Children are cell renderers (stamped through a CellRendererPane) or the cell editor being used
+    private static boolean isCellHost(Component c) {
+        return c instanceof CellRendererPane || c instanceof JTable || c instanceof JTree || c instanceof JList;
+    }
 
+    // Entry points below the window (editors, dynamic adds) look up once
+    private static boolean isUnderCellHost(Component c) {
+        for (Container p = c.getParent(); p != null; p = p.getParent()) {
+            if (isCellHost(p)) return true;
+        }
+        return false;
+    }
 
-    // ===== Core painter =====
-    private void paintDeep(Component c) {
-        if (c == null) return;
+    // Everything but the recursion: one component's style (the unit a heal re-applies)
+    private void styleComponent(Component c, boolean dark) {
+        counters.visits++;
 
         // 1) Special roles first
-        if (isConsolePane(c)) {
-            if (darkMode) styleConsole((JTextPane) c);
+        boolean console = isConsolePane(c);
+        if (console) {
+            if (dark) styleConsole((JTextPane) c);
             else revertConsole((JTextPane) c);
         }
 
-        // === TARGETED AREAS YOU ASKED FOR (run before category rules) ===
-        if (darkMode) {
-            // Project Browser (left tree + its containers)
-            if (isProjectBrowserTree(c)) {
-                applyAreaDark(c, DARK_GRAY);          // JTree itself
-            } else if (isProjectBrowserContainer(c) && isUnder(c, FQCN_NAV_TREE_PANEL)) {
-                applyAreaDark(c, GRAY_BG);            // JScrollPane/JViewport/JPanel around the tree
+        if (dark) {
+            // Areas, Property Editor fix-ups and category rules all land in one target (later writes
+            // win), then each property is compared and written once
+            Target outerTarget = target.of != null ? target : null; // a spinner's editor, mid-spinner
+            if (outerTarget != null) target = new Target();
+            target.begin(c);
+            try {
+                styleTargets(c, console);
+            } finally {
+                target.end();
+                if (outerTarget != null) target = outerTarget;
             }
 
-            // Tag Browser (bottom-left): darken tree, tables, chrome, and editors
-            if (isUnderTagBrowser(c)) {
-                styleTagBrowserComponent(c);
-            }
+            // Script/expression/query editors share one dark syntax scheme and own all their colors
+            if (isCodeEditor(c)) codeTheme().apply(c);
 
-            // Perspective Property Editor (right), includes Session props
-            if (isPropertyEditorArea(c)) {
-                applyAreaDark(c, DARK_GRAY);
-            }
-        }
-        // Ensure Property Editor tables get the dark renderer/editors
-        if (darkMode && isPropertyEditorArea(c) && c instanceof JTable) {
-            ensurePropertyEditorTableHooks((JTable) c);
-        }
+            // OEM colors no rule covers (tinted panels, pastel highlights, light grays): same hue, dark
+            if (!console && c instanceof JComponent jc && !isCodeEditor(c)) remapStray(jc);
 
-        if (darkMode && isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) {
-            stripPEHoverOverlays(c);  // keep our own hover, remove OEM white overlay
+            // Popups and menus: themed when they open (see PopupHook); cheap no-op if already current
+            if (c instanceof JPopupMenu pm) themePopup(pm);
+
+            // Pre-order, so ancestors' opacity is already final when a child is judged
+            if (optimizeOpacity) opacityOptimizer.optimize(c);
+
+            // OEM code resetting it later (updateUI, renderer swaps, LAF refresh) reaches the healer
+            watchForResets(c);
+        } else {
+            // only non-empty during a subtree revert (going light restores them all at once)
+            if (opacityOptimizer.forcedCount() > 0) opacityOptimizer.release(c);
+            revertLight(c);
+            if (codeTheme != null && isCodeEditor(c)) codeTheme.restore(c);
         }
 
-        // Brutal-but-precise fix for white tiles/editors in the Property Editor
-        if (darkMode && isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) {
-            fixPropertyEditorWhites(c);
+        // Contributed stylers (see ThemeContribution); an empty array for almost every class
+        for (CategoryRules.StylerRule sr : rules.stylers(c)) {
+            if (sr.root() == null || (stylerRoots != null && stylerRoots.contains(sr.root()))) {
+                sr.styler().style(c, dark);
+            }
         }
 
-        // Neutralize OEM light hover overlay inside the Property Editor
-        if (darkMode && isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) {
-            removePropertyEditorHoverTrackers(c);
+        // 4) Titled border contrast
+        if (c instanceof JComponent jc && jc.getBorder() instanceof javax.swing.border.TitledBorder tb) {
+            tb.setTitleColor(WHITE);
         }
 
-        // 2) Category pass (first match wins)
-        if (darkMode) {
-            boolean matched =
-                    applyIf(c, ABW, Cat.ABW) ||
-                            applyIf(c, BW,  Cat.BW)  ||
-                            applyIf(c, DGW, Cat.DGW) ||
-                            applyIf(c, LGB, Cat.LGB) ||
-                            applyIf(c, LLGB,Cat.LLGB) ||
-                            // Context/role (replaces $Inner hard refs):
-                            applyPred(c, this::isNavTreeFilter, Cat.ABW) ||
-                            applyPred(c, this::isPropertyEditorSearch, Cat.ABW) ||
-                            applyPred(c, this::isPaletteFilter, Cat.ABW) ||
-                            applyPred(c, this::isBindingEditorButtons, Cat.DGW) ||
-                            applyPred(c, comp -> isUnder(comp, FQCN_ACTION_COLLECTION_EDITOR) && comp instanceof JPanel, Cat.DGW);
+        c.repaint();
+    }
 
-            // Fonts white + no white boxes: adjust per type
-            if (matched) shapeForText(c);
 
-            // Popups and menus
-            if (c instanceof JPopupMenu pm) {
-                stylePopup(pm);
-            } else if (c instanceof JComponent jc && jc.getComponentPopupMenu() != null) {
-                stylePopup(jc.getComponentPopupMenu());
-            }
+    // The buffered part of a dark visit: everything that writes bg/fg/opaque of c goes to the target
+    private void styleTargets(Component c, boolean console) {
+        // === TARGETED AREAS YOU ASKED FOR (run before category rules) ===
+        // Project Browser (left tree + its containers)
+        if (isProjectBrowserTree(c)) {
+            applyAreaDark(c, DARK_GRAY);          // JTree itself
+        } else if (isProjectBrowserContainer(c) && isUnder(c, FQCN_NAV_TREE_PANEL)) {
+            applyAreaDark(c, GRAY_BG);            // JScrollPane/JViewport/JPanel around the tree
+        }
 
-        } else {
-            revertLight(c);
+        // Tag Browser (bottom-left): darken tree, tables, chrome, and editors
+        if (isUnderTagBrowser(c)) {
+            styleTagBrowserComponent(c);
         }
 
-        // 3) Recurse
-        if (c instanceof Container ct) {
-            for (Component child : ct.getComponents()) paintDeep(child);
+        // Perspective Property Editor (right), includes Session props
+        if (isPropertyEditorArea(c)) {
+            applyAreaDark(c, DARK_GRAY);
+        }
+        // Ensure Property Editor tables get the dark renderer/editors
+        if (isPropertyEditorArea(c) && c instanceof JTable) {
+            ensurePropertyEditorTableHooks((JTable) c);
         }
 
-        // 4) Titled border contrast
-        if (c instanceof JComponent jc && jc.getBorder() instanceof javax.swing.border.TitledBorder tb) {
-            tb.setTitleColor(WHITE);
+        if (isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) {
+            // Neutralize OEM light hover overlay (keep our own hover); restored when going light
+            counters.listenerRemovals += hoverSurgery.strip(c);
+            // Brutal-but-precise fix for white tiles/editors in the Property Editor
+            fixPropertyEditorWhites(c);
         }
 
-        c.repaint();
+        // 2) Category pass (first match wins; see CategoryRules)
+        Category cat = rules.classify(c, region);
+        if (cat != null && !console && !isCodeEditor(c)) { // the console's colors come from styleConsole
+            applySpec(c, DARK.get(cat), target);
+            // Fonts white + no white boxes: adjust per type
+            shapeForText(c, target);
+        }
     }
 
+    // ===== Healing =====
+    // A component OEM code keeps resetting is healed this often per theme generation, then left alone
+    private static final int MAX_HEALS = 16;
+
+    private void watchForResets(Component c) {
+        // renderers are reconfigured on every stamp and editors styled by styleCellEditor: nothing to heal
+        if (inCells) return;
+        PainterState st = state.of(c);
+        if (st.has(PainterState.HEAL_WATCHED)) return;
+        c.addPropertyChangeListener(healer); // one shared instance; it filters by property name
+        st.set(PainterState.HEAL_WATCHED);
+        counters.listenerInstalls++;
+    }
 
-    // ===== Category helpers =====
-    private boolean applyIf(Component c, Set<String> names, Cat cat) {
-        if (matches(c, names)) {
-            applySpec(c, DARK.get(cat));
-            return true;
+    // Re-applies one component's style (no recursion); called by the healer, muted
+    private void heal(Component c) {
+        if (!darkMode || !c.isDisplayable() || isExcluded(c)) return;
+        PainterState st = state.of(c);
+        if (st.healGen != themeGeneration) {
+            st.healGen = themeGeneration;
+            st.heals = 0;
+        }
+        if (++st.heals > MAX_HEALS) return; // fighting us: stop before it turns into a repaint loop
+        st.flags &= ~PainterState.PE_FIXED; // the Property Editor fix-up runs once per component otherwise
+        counters.beginPass();
+        CategoryRules.Region outer = region;
+        CategoryRules.Roots outerRoots = stylerRoots;
+        region = rules.enclosingRegion(c);
+        stylerRoots = rules.enclosingStylerRoots(c);
+        try {
+            styleComponent(c, true);
+        } finally {
+            region = outer;
+            stylerRoots = outerRoots;
+            counters.endPass();
         }
-        return false;
     }
 
-    private boolean applyPred(Component c, Predicate<Component> p, Cat cat) {
-        if (p.test(c)) {
-            applySpec(c, DARK.get(cat));
-            return true;
+
+    // ===== Category helpers =====
+    /**
+     * Desired style of the component being visited. Between begin and end, every bg/fg/opaque write
+     * to that component (targeted areas, Property Editor fix-ups, applySpec, shapeForText, the table
+     * and tree stylers they call) lands here instead, later writes winning as they used to on the
+     * component; end then compares and writes each property once. Two rules that disagree no longer
+     * flip a property there and back on every pass. Reads during the visit go through bgOf/opaqueOf.
+     * EDT only; a visit nested in another one (a spinner's editor) gets its own instance.
+     */
+    private final class Target {
+        Component of; // the component being buffered, null outside a visit
+        Color bg, fg;
+        Boolean opaque;
+
+        void begin(Component c) {
+            of = c;
+            bg = fg = null;
+            opaque = null;
+        }
+
+        void end() {
+            Component c = of;
+            of = null;
+            if (bg != null) setBg(c, bg);
+            if (fg != null) setFg(c, fg);
+            if (opaque != null && c instanceof JComponent jc) setOpaque(jc, opaque);
+        }
+
+        Color bgOf(Component c) {
+            return c == of && bg != null ? bg : c.getBackground();
+        }
+
+        boolean opaqueOf(Component c) {
+            return c == of && opaque != null ? opaque : c.isOpaque();
         }
-        return false;
     }
+    private Target target = new Target();
 
-    private void applySpec(Component c, Spec s) {
+    private void applySpec(Component c, Spec s, Target t) {
         // Only change backgrounds for containers and known-safe components.
         if (isContainerish(c) || shouldForceOpaque(c)) {
-            c.setBackground(s.bg());
+            t.bg = s.bg();
         }
         // Always set foreground for text-bearing components:
         if (isTextBearing(c)) {
-            c.setForeground(s.fg());
+            t.fg = s.fg();
         }
-        if (c instanceof JComponent jc && shouldForceOpaque(c)) {
-            jc.setOpaque(true);
+        if (c instanceof JComponent && shouldForceOpaque(c)) {
+            t.opaque = Boolean.TRUE;
         }
     }
     private void applyAreaDark(Component c, Color bg) {
         // container-ish get bg; text stays white; avoid forcing opaque unless needed
         if (isContainerish(c) || shouldForceOpaque(c)) {
-            c.setBackground(bg);
+            setBg(c, bg);
         }
         if (isTextBearing(c)) {
-            c.setForeground(WHITE);
+            setFg(c, WHITE);
             if (c instanceof JTextComponent tc) {
-                if (!shouldForceOpaque(c)) tc.setOpaque(false);
-                tc.setCaretColor(WHITE);
-                tc.setSelectionColor(new Color(96, 125, 139));
-                tc.setSelectedTextColor(WHITE);
+                if (!shouldForceOpaque(c)) setOpaque(tc, false);
+                // Property Editor fields keep the selection colors fixPropertyEditorWhites gave them
+                if (!state.has(tc, PainterState.PE_FIXED)) {
+                    setCaret(tc, WHITE);
+                    setTextSelection(tc, TEXT_SELECTION);
+                    setSelectedText(tc, WHITE);
+                }
             }
         }
         // Tables: full dark rendering
@@ -428,25 +972,24 @@ public final class DarkPainter {
     // Keep OEM column renderers (tree renderer, value formatters) intact.
 // Only wrap columns that already use DefaultTableCellRenderer.
     private void styleTableDarkConservative(JTable t) {
-        t.setForeground(WHITE);
-        t.setBackground(GRAY_BG);
-        t.setSelectionBackground(new Color(75, 110, 175));
-        t.setSelectionForeground(WHITE);
-        t.setGridColor(new Color(100, 100, 100));
-        t.setOpaque(true);
+        setFg(t, WHITE);
+        setBg(t, GRAY_BG);
+        setTableColors(t, SELECTION_BG, WHITE, GRID);
+        setOpaque(t, true);
 
         JTableHeader hdr = t.getTableHeader();
         if (hdr != null) {
-            hdr.setForeground(WHITE);
-            hdr.setBackground(DARK_GRAY);
-            hdr.setOpaque(true);
+            setFg(hdr, WHITE);
+            setBg(hdr, DARK_GRAY);
+            setOpaque(hdr, true);
         }
 
-        // Wrap only if the column is already using DefaultTableCellRenderer.
+        // Wrap only if the column is already using DefaultTableCellRenderer (and isn't wrapped yet).
         int cc = t.getColumnModel().getColumnCount();
         for (int i = 0; i < cc; i++) {
             var col = t.getColumnModel().getColumn(i);
             var base = col.getCellRenderer();
+            if (base instanceof DarkTableCellRenderer) continue; // earlier pass: no re-wrap, no "cellRenderer" event
             if (base instanceof DefaultTableCellRenderer dtr) {
                 col.setCellRenderer(new DarkTableCellRenderer(dtr));
             } // else: leave OEM renderer alone (tree/value/custom)
@@ -456,8 +999,8 @@ public final class DarkPainter {
     private void styleTagBrowserComponent(Component c) {
         // Containers: scrollpane/viewport/panels
         if (c instanceof JScrollPane || c instanceof JViewport || c instanceof JPanel) {
-            c.setBackground(GRAY_BG);
-            if (c instanceof JComponent jc) jc.setOpaque(true);
+            setBg(c, GRAY_BG);
+            if (c instanceof JComponent jc) setOpaque(jc, true);
         }
 
         // Tree on the left: dark + readable selection
@@ -472,44 +1015,44 @@ public final class DarkPainter {
 
         // Search/filter field at the top of Tag Browser
         if (c instanceof JTextField tf) {
-            tf.setForeground(WHITE);
-            tf.setCaretColor(WHITE);
+            setFg(tf, WHITE);
+            setCaret(tf, WHITE);
             // leave transparent so the parent chrome shows (no white box)
-            tf.setOpaque(false);
+            setOpaque(tf, false);
             // If you prefer a filled field, uncomment:
             // tf.setOpaque(true); tf.setBackground(DARK_GRAY);
         }
 
         // Small toolbar along the top
         if (c instanceof JToolBar tb) {
-            tb.setBackground(DARK_GRAY);
-            tb.setOpaque(true);  // JToolBar already extends JComponent
+            setBg(tb, DARK_GRAY);
+            setOpaque(tb, true);  // JToolBar already extends JComponent
         }
 
         if (c instanceof AbstractButton btn) {
-            btn.setForeground(WHITE);
-            btn.setOpaque(false); // keep transparent so toolbar bg shows
+            setFg(btn, WHITE);
+            setOpaque(btn, false); // keep transparent so toolbar bg shows
         }
 
         // Tabs within Tag Browser (if present)
         if (c instanceof JTabbedPane tabs) {
-            tabs.setBackground(GRAY_BG);
-            tabs.setForeground(WHITE);
-            tabs.setOpaque(true);
+            setBg(tabs, GRAY_BG);
+            setFg(tabs, WHITE);
+            setOpaque(tabs, true);
         }
     }
 
 
     private void styleTreeDark(JTree tree, Color bg) {
-        tree.setBackground(bg);
-        tree.setForeground(WHITE);
-        tree.setOpaque(true);
+        setBg(tree, bg);
+        setFg(tree, WHITE);
+        setOpaque(tree, true);
 
         // Ensure selection colors via the renderer
         if (tree.getCellRenderer() instanceof DefaultTreeCellRenderer r) {
             r.setBackgroundNonSelectionColor(bg);
             r.setTextNonSelectionColor(WHITE);
-            r.setBackgroundSelectionColor(new Color(75, 110, 175));
+            r.setBackgroundSelectionColor(SELECTION_BG);
             r.setTextSelectionColor(WHITE);
         } else {
             // Wrap any custom renderer so we can enforce colors
@@ -520,7 +1063,7 @@ public final class DarkPainter {
                     Component c = super.getTreeCellRendererComponent(t, value, sel, expanded, leaf, row, hasFocus);
                     setBackgroundNonSelectionColor(bg);
                     setTextNonSelectionColor(WHITE);
-                    setBackgroundSelectionColor(new Color(75, 110, 175));
+                    setBackgroundSelectionColor(SELECTION_BG);
                     setTextSelectionColor(WHITE);
                     return c;
                 }
@@ -531,102 +1074,121 @@ public final class DarkPainter {
 
 
     private void revertLight(Component c) {
-        // Return to light-ish defaults without overpainting
-        if (isContainerish(c) || shouldForceOpaque(c)) c.setBackground(Color.WHITE);
-        if (isTextBearing(c)) c.setForeground(Color.BLACK);
-        if (c instanceof JComponent jc && shouldForceOpaque(c)) jc.setOpaque(false);
+        // Return to light-ish defaults without overpainting; remapped OEM colors get their originals back
+        if (c.getBackground() instanceof ColorMapper.Mapped m) setBg(c, m.source());
+        else if (isContainerish(c) || shouldForceOpaque(c)) setBg(c, Color.WHITE);
+        if (c.getForeground() instanceof ColorMapper.Mapped m) setFg(c, m.source());
+        else if (isTextBearing(c)) setFg(c, Color.BLACK);
+        if (c instanceof JComponent jc && shouldForceOpaque(c)) setOpaque(jc, false);
         if (c instanceof JTable t) revertTableLight(t);
-        if (c instanceof JPopupMenu pm) revertPopupLight(pm);
+        if (c instanceof JPopupMenu pm && pm.getBackground() == GRAY_BG) revertPopupLight(pm);
+        // popups, editors and windows styled in this generation: a re-included one is styled again
+        PainterState st = state.peek(c);
+        if (st != null) st.themedGen = PainterState.STALE;
     }
 
-    private static boolean isNearWhite(Color c) {
-        if (c == null) return false;
-        // perceptual brightness (0..255). Treat > 235 as “white-ish”.
-        int r = c.getRed(), g = c.getGreen(), b = c.getBlue();
-        int lum = (int)(0.2126*r + 0.7152*g + 0.0722*b);
-        return lum >= 235;
+    /** An opaque surface still painting a light color of its own gets the dark equivalent (and readable text). */
+    private void remapStray(JComponent jc) {
+        if (!jc.isOpaque() || !jc.isBackgroundSet()) return; // inherited: the parent's is handled there
+        Color bg = jc.getBackground();
+        if (isThemed(bg) || !colors.isLight(bg)) return;
+        setBg(jc, new ColorMapper.Mapped(bg, colors));
+        Color fg = jc.getForeground();
+        if (fg != null && !isThemed(fg) && !colors.isLight(fg)) setFg(jc, new ColorMapper.Mapped(fg, colors));
     }
 
-    private static final String PE_FIXED = "dark.pe.fixed";
+    private static boolean isThemed(Color c) {
+        return c instanceof ThemeColor || c instanceof ColorMapper.Mapped;
+    }
+
+    // Light (HSL lightness >= 0.7, cached per color): light grays and tints too, not just near-white
+    private boolean isLight(Color c) {
+        return !(c instanceof ColorMapper.Mapped) && colors.isLight(c);
+    }
+
+    // Dark replacement for a white-ish bg: the neutral token for grays, a same-hue equivalent for tints
+    private Color darkFor(Color bg, Color neutral) {
+        return isLight(bg) && !colors.isNeutral(bg) ? new ColorMapper.Mapped(bg, colors) : neutral;
+    }
 
     private void fixPropertyEditorWhites(Component c) {
         if (!(c instanceof JComponent jc)) return;
-        if (Boolean.TRUE.equals(jc.getClientProperty(PE_FIXED))) return;
+        if (state.has(jc, PainterState.PE_FIXED)) return;
 
         // Containers around the grid (scrollpane/viewport/panels)
         if (c instanceof JScrollPane || c instanceof JViewport || c instanceof JPanel) {
-            if (isNearWhite(jc.getBackground())) {
-                jc.setBackground(DARK_GRAY);
-                jc.setOpaque(true);
+            if (isLight(target.bgOf(jc))) {
+                setBg(jc, darkFor(target.bgOf(jc), DARK_GRAY));
+                setOpaque(jc, true);
             }
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            state.of(jc).set(PainterState.PE_FIXED);
             return;
         }
 
         // Labels should be white text, transparent bg (no tiles)
         if (c instanceof JLabel lbl) {
-            lbl.setForeground(WHITE);
-            lbl.setOpaque(false);
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            setFg(lbl, WHITE);
+            setOpaque(lbl, false);
+            state.of(jc).set(PainterState.PE_FIXED);
             return;
         }
 
         // Editors: text inputs / combos / spinners → solid dark, readable caret
         if (c instanceof JTextComponent tc) {
-            tc.setForeground(WHITE);
-            if (isNearWhite(tc.getBackground()) || !tc.isOpaque()) {
-                tc.setBackground(PE_ROW_BG);
+            setFg(tc, WHITE);
+            if (isLight(target.bgOf(tc)) || !target.opaqueOf(tc)) {
+                setBg(tc, darkFor(target.bgOf(tc), PE_ROW_BG));
             }
-            tc.setOpaque(true);
-            tc.setCaretColor(WHITE);
-            tc.setSelectionColor(PE_SELECT_BG);
-            tc.setSelectedTextColor(WHITE);
-            attachFocusTint(tc); // subtle focus tint, no sticky hover
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            setOpaque(tc, true);
+            setCaret(tc, WHITE);
+            setTextSelection(tc, PE_SELECT_BG);
+            setSelectedText(tc, WHITE);
+            markFocusTint(tc); // subtle focus tint, no sticky hover
+            state.of(jc).set(PainterState.PE_FIXED);
             return;
         }
 
         if (c instanceof JComboBox<?> cb) {
-            ((JComponent) cb).setOpaque(true);
-            cb.setForeground(WHITE);
-            if (isNearWhite(cb.getBackground())) {
-                cb.setBackground(PE_ROW_BG);
+            setOpaque((JComponent) cb, true);
+            setFg(cb, WHITE);
+            if (isLight(target.bgOf(cb))) {
+                setBg(cb, darkFor(target.bgOf(cb), PE_ROW_BG));
             }
-            attachFocusTint((JComponent) cb);
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            markFocusTint((JComponent) cb);
+            state.of(jc).set(PainterState.PE_FIXED);
             return;
         }
 
         if (c instanceof JSpinner sp) {
-            jc.setOpaque(true);
-            jc.setForeground(WHITE);
-            if (isNearWhite(jc.getBackground())) jc.setBackground(PE_ROW_BG);
+            setOpaque(jc, true);
+            setFg(jc, WHITE);
+            if (isLight(target.bgOf(jc))) setBg(jc, darkFor(target.bgOf(jc), PE_ROW_BG));
             // also darken spinner’s editor
             JComponent ed = sp.getEditor();
             if (ed != null) {
-                paintDeep(ed);
-                ed.setOpaque(true);
-                ed.setForeground(WHITE);
-                if (isNearWhite(ed.getBackground())) ed.setBackground(PE_ROW_BG);
+                paintDeep(ed, true);
+                setOpaque(ed, true);
+                setFg(ed, WHITE);
+                if (isLight(ed.getBackground())) setBg(ed, darkFor(ed.getBackground(), PE_ROW_BG));
             }
-            attachFocusTint(jc);
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            markFocusTint(jc);
+            state.of(jc).set(PainterState.PE_FIXED);
             return;
         }
 
         // Checkboxes (booleans not in table renderers)
         if (c instanceof JCheckBox cbx) {
-            cbx.setOpaque(true);
-            cbx.setForeground(WHITE);
-            if (isNearWhite(cbx.getBackground())) cbx.setBackground(PE_ROW_BG);
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            setOpaque(cbx, true);
+            setFg(cbx, WHITE);
+            if (isLight(target.bgOf(cbx))) setBg(cbx, darkFor(target.bgOf(cbx), PE_ROW_BG));
+            state.of(jc).set(PainterState.PE_FIXED);
             return;
         }
 
         // Generic catch: any other opaque white-ish widget under Property Editor → darken
-        if (jc.isOpaque() && isNearWhite(jc.getBackground())) {
-            jc.setBackground(PE_ROW_BG);
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+        if (target.opaqueOf(jc) && isLight(target.bgOf(jc))) {
+            setBg(jc, darkFor(target.bgOf(jc), PE_ROW_BG));
+            state.of(jc).set(PainterState.PE_FIXED);
         }
         // COLLAPSED/OVERLAY rows: any opaque near-white widget under PE gets dark row bg
         if (isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) {
@@ -635,18 +1197,18 @@ public final class DarkPainter {
                     sn.contains("Overlay") || sn.contains("Stripe") || sn.contains("Row")
                             || sn.contains("Band")    || sn.contains("Layer")  || sn.contains("Panel");
 
-            if ((jc.isOpaque() && isNearWhite(jc.getBackground())) || looksLikeOverlay) {
-                jc.setBackground(PE_ROW_BG);
-                jc.setOpaque(true);
-                jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+            if ((target.opaqueOf(jc) && isLight(target.bgOf(jc))) || looksLikeOverlay) {
+                setBg(jc, darkFor(target.bgOf(jc), PE_ROW_BG));
+                setOpaque(jc, true);
+                state.of(jc).set(PainterState.PE_FIXED);
                 return;
             }
         }
 
         // existing generic near-white catch:
-        if (jc.isOpaque() && isNearWhite(jc.getBackground())) {
-            jc.setBackground(PE_ROW_BG);
-            jc.putClientProperty(PE_FIXED, Boolean.TRUE);
+        if (target.opaqueOf(jc) && isLight(target.bgOf(jc))) {
+            setBg(jc, darkFor(target.bgOf(jc), PE_ROW_BG));
+            state.of(jc).set(PainterState.PE_FIXED);
         }
         // Final guard: any overlay-ish widget under Property Editor – don't let it paint white
         if (isUnder(c, FQCN_PROPERTY_EDITOR_FRAME) && c instanceof JComponent jx) {
@@ -655,7 +1217,7 @@ public final class DarkPainter {
                     || sn.contains("Band")    || sn.contains("Layer");
             if (looksLikeOverlay) {
                 // either make it transparent so our cells show through...
-                jx.setOpaque(false);
+                setOpaque(jx, false);
                 // ...or give it our dark hover so it blends (uncomment one you prefer):
                 // jx.setOpaque(true);
                 // jx.setBackground(PE_ROW_BG); // or PE_HOVER_BG if you want it to match rollover
@@ -664,55 +1226,60 @@ public final class DarkPainter {
 
     }
 
-    private static final String FOCUS_TINT = "dark.focus.tinted";
-    private void attachFocusTint(JComponent jc) {
-        if (Boolean.TRUE.equals(jc.getClientProperty(FOCUS_TINT))) return;
-        jc.addFocusListener(new java.awt.event.FocusAdapter() {
-            @Override public void focusGained(java.awt.event.FocusEvent e) {
-                jc.setBackground(PE_HOVER_BG);
-                jc.repaint();
-            }
-            @Override public void focusLost(java.awt.event.FocusEvent e) {
-                jc.setBackground(PE_ROW_BG);
-                jc.repaint();
-            }
-        });
-        jc.putClientProperty(FOCUS_TINT, Boolean.TRUE);
+    // Marks an editor for the focus tint; the tint itself comes from the global focusTint listener
+    private void markFocusTint(JComponent jc) {
+        state.of(jc).set(PainterState.FOCUS_TINT);
     }
 
+    /** One listener for all editors: tints the new permanent focus owner, clears the old one. */
+    private final java.beans.PropertyChangeListener focusTint = e -> {
+        if (!darkMode) return;
+        if (e.getOldValue() instanceof JComponent old && state.has(old, PainterState.FOCUS_TINT) && !isExcluded(old)) {
+            setBg(old, PE_ROW_BG);
+            old.repaint();
+        }
+        if (e.getNewValue() instanceof JComponent now && state.has(now, PainterState.FOCUS_TINT) && !isExcluded(now)) {
+            setBg(now, PE_HOVER_BG);
+            now.repaint();
+        }
+    };
+
 
     // ===== Text + background shaping (avoid “white boxes”) =====
-    private void shapeForText(Component c) {
+    private void shapeForText(Component c, Target t) {
         // For text components, prefer transparent backgrounds with white fg,
         // unless they’re in our safe opaque allow list.
         if (c instanceof JTextComponent tc) {
-            tc.setForeground(WHITE);
+            t.fg = WHITE;
             if (!shouldForceOpaque(c)) {
                 // keep transparent; parent provides gray bg
-                tc.setOpaque(false);
+                t.opaque = Boolean.FALSE;
             } else {
-                tc.setOpaque(true);
-                tc.setBackground(GRAY_BG);
+                t.opaque = Boolean.TRUE;
+                t.bg = GRAY_BG;
             }
             // nicer caret/selection on dark
-            tc.setCaretColor(WHITE);
+            setCaret(tc, WHITE);
             if (tc instanceof JTextArea || tc instanceof JTextPane || tc instanceof JEditorPane) {
-                tc.setSelectionColor(new Color(96, 125, 139));
-                tc.setSelectedTextColor(WHITE);
+                setTextSelection(tc, TEXT_SELECTION);
+                setSelectedText(tc, WHITE);
             }
-        } else if (c instanceof JLabel lbl) {
-            lbl.setForeground(WHITE);
-            if (!shouldForceOpaque(c)) lbl.setOpaque(false);
-        } else if (c instanceof JTable t) {
-            styleTableDark(t);
+        } else if (c instanceof JLabel) {
+            t.fg = WHITE;
+            if (!shouldForceOpaque(c)) t.opaque = Boolean.FALSE;
+        } else if (c instanceof JTable table) {
+            // styleTableDark writes the same base colors, into the same target
+            t.fg = WHITE;
+            t.bg = GRAY_BG;
+            t.opaque = Boolean.TRUE;
+            styleTableDark(table);
         } else if (c instanceof JList<?> list) {
-            list.setForeground(WHITE);
-            list.setSelectionBackground(new Color(75, 110, 175));
-            list.setSelectionForeground(WHITE);
-            if (!shouldForceOpaque(c)) list.setOpaque(false);
-        } else if (c instanceof JComboBox<?> cb) {
-            cb.setForeground(WHITE);
-            if (!shouldForceOpaque(c)) ((JComponent) cb).setOpaque(false);
+            t.fg = WHITE;
+            setListSelection(list, SELECTION_BG, WHITE);
+            if (!shouldForceOpaque(c)) t.opaque = Boolean.FALSE;
+        } else if (c instanceof JComboBox<?>) {
+            t.fg = WHITE;
+            if (!shouldForceOpaque(c)) t.opaque = Boolean.FALSE;
         }
     }
 
@@ -737,35 +1304,68 @@ public final class DarkPainter {
     }
 
     private void styleConsole(JTextPane pane) {
-        pane.setBackground(GRAY_BG_ALT);
-        pane.setForeground(WHITE);
-        pane.setOpaque(true);
+        setBg(pane, GRAY_BG_ALT);
+        setFg(pane, WHITE);
+        setOpaque(pane, true);
 
+        // Full restyle only when turning dark: later passes must not wipe the log-level highlighting
+        PainterState st = state.of(pane);
+        if (st.has(PainterState.CONSOLE_DARK)) return;
         StyledDocument doc = pane.getStyledDocument();
+        restyleConsole(doc, 0, doc.getLength(), CONSOLE_BASE, "full");
+        if (!st.has(PainterState.CONSOLE_WRAPPED)) {
+            // Optional ring-buffer mode (no-op while both caps are 0)
+            doc.addDocumentListener(new ConsoleLimiter(this, doc));
+            // Appended text: base style right away, log-level highlighting tokenized off the EDT
+            doc.addDocumentListener(new ConsoleHighlighter(this, doc, CONSOLE_BASE));
+            st.set(PainterState.CONSOLE_WRAPPED);
+            counters.listenerInstalls += 2;
+        }
+        ConsoleHighlighter hl = highlighterOf(doc);
+        if (hl != null) hl.highlightExisting();
+        st.set(PainterState.CONSOLE_DARK);
+    }
+
+    // Base style of console text in dark mode (a token, so palette switches need no restyle)
+    private static final AttributeSet CONSOLE_BASE = consoleBase();
+
+    private static AttributeSet consoleBase() {
         SimpleAttributeSet set = new SimpleAttributeSet();
         StyleConstants.setForeground(set, WHITE);
-        doc.setCharacterAttributes(0, doc.getLength(), set, false);
-
-        // Keep text white on future inserts
-        if (!Boolean.TRUE.equals(pane.getClientProperty("dark.consoleWrapped"))) {
-            doc.addDocumentListener(new DocumentListener() {
-                @Override public void insertUpdate(DocumentEvent e) {
-                    SwingUtilities.invokeLater(() -> {
-                        int len = doc.getLength();
-                        if (len > 0) doc.setCharacterAttributes(0, len, set, false);
-                    });
-                }
-                @Override public void removeUpdate(DocumentEvent e) {}
-                @Override public void changedUpdate(DocumentEvent e) {}
-            });
-            pane.putClientProperty("dark.consoleWrapped", Boolean.TRUE);
+        return set;
+    }
+
+    private static ConsoleHighlighter highlighterOf(StyledDocument doc) {
+        if (doc instanceof AbstractDocument ad) {
+            for (DocumentListener l : ad.getDocumentListeners()) {
+                if (l instanceof ConsoleHighlighter hl) return hl;
+            }
+        }
+        return null;
+    }
+
+    private static void restyleConsole(StyledDocument doc, int from, int len, AttributeSet set, String kind) {
+        ThemeEvents.ConsoleRestyle ev = new ThemeEvents.ConsoleRestyle();
+        ev.begin();
+        doc.setCharacterAttributes(from, len, set, false);
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.kind = kind;
+            ev.rangeLength = len;
+            ev.commit();
         }
     }
 
     private void revertConsole(JTextPane pane) {
-        pane.setBackground(Color.WHITE);
-        pane.setForeground(Color.BLACK);
-        pane.setOpaque(false);
+        setBg(pane, Color.WHITE);
+        setFg(pane, Color.BLACK);
+        setOpaque(pane, false);
+        // dark text colors and highlighting come off (styleConsole puts them back when dark again)
+        PainterState st = state.peek(pane);
+        if (st != null && st.has(PainterState.CONSOLE_DARK)) {
+            ConsoleHighlighter.strip(pane.getStyledDocument());
+            st.flags &= ~PainterState.CONSOLE_DARK;
+        }
     }
 
     private boolean isNavTreeFilter(Component c) {
@@ -814,40 +1414,6 @@ public final class DarkPainter {
                 || (c instanceof JTextComponent) || (c instanceof JComboBox);
     }
 
-    // Call this ONLY inside PropertyEditorFrame
-    private void stripPEHoverOverlays(Component c) {
-        if (!isUnder(c, FQCN_PROPERTY_EDITOR_FRAME)) return;
-
-        final String[] TOKENS = {"Hover", "Highlight", "Overlay", "Rollover", "RowHigh"};
-
-        // remove from this component
-        if (c instanceof JComponent jc) {
-            for (var ml : jc.getMouseListeners()) {
-                String n = ml.getClass().getName();
-                for (String t : TOKENS) if (n.contains(t)) { jc.removeMouseListener(ml); break; }
-            }
-            for (var mml : jc.getMouseMotionListeners()) {
-                String n = mml.getClass().getName();
-                for (String t : TOKENS) if (n.contains(t)) { jc.removeMouseMotionListener(mml); break; }
-            }
-        }
-        // and from a few parents (OEM often installs on containers)
-        Container p = c.getParent();
-        for (int i = 0; i < 4 && p != null; i++, p = p.getParent()) {
-            if (p instanceof JComponent pj) {
-                for (var ml : pj.getMouseListeners()) {
-                    String n = ml.getClass().getName();
-                    for (String t : TOKENS) if (n.contains(t)) { pj.removeMouseListener(ml); break; }
-                }
-                for (var mml : pj.getMouseMotionListeners()) {
-                    String n = mml.getClass().getName();
-                    for (String t : TOKENS) if (n.contains(t)) { pj.removeMouseMotionListener(mml); break; }
-                }
-            }
-        }
-    }
-
-
     private boolean isBindingEditorButtons(Component c) {
         if (!(c instanceof JPanel p)) return false;
         if (!isUnder(c, FQCN_BINDING_EDITOR_FRAME)) return false;
@@ -864,24 +1430,23 @@ public final class DarkPainter {
 
     // ===== Tables =======
     private void styleTableDark(JTable t) {
-        t.setForeground(WHITE);
-        t.setBackground(GRAY_BG);
-        t.setSelectionBackground(new Color(75, 110, 175));
-        t.setSelectionForeground(WHITE);
-        t.setGridColor(new Color(100, 100, 100));
-        t.setOpaque(true);
+        setFg(t, WHITE);
+        setBg(t, GRAY_BG);
+        setTableColors(t, SELECTION_BG, WHITE, GRID);
+        setOpaque(t, true);
 
         JTableHeader hdr = t.getTableHeader();
         if (hdr != null) {
-            hdr.setForeground(WHITE);
-            hdr.setBackground(DARK_GRAY);
-            hdr.setOpaque(true);
+            setFg(hdr, WHITE);
+            setBg(hdr, DARK_GRAY);
+            setOpaque(hdr, true);
         }
 
         // Wrap default renderers so they don’t restore light fg/bg
         for (int i = 0; i < t.getColumnModel().getColumnCount(); i++) {
             var col = t.getColumnModel().getColumn(i);
             var base = col.getCellRenderer();
+            if (base instanceof DarkTableCellRenderer) continue; // already wrapped by an earlier pass
             if (!(base instanceof DefaultTableCellRenderer)) {
                 base = new DefaultTableCellRenderer();
             }
@@ -889,30 +1454,34 @@ public final class DarkPainter {
         }
     }
 
+    // Stock light table colors restored when going light
+    private static final Color LIGHT_TABLE_SELECTION = new Color(184, 207, 229);
+    private static final Color LIGHT_TABLE_GRID = new Color(200, 200, 200);
+
     private void revertTableLight(JTable t) {
-        t.setForeground(Color.BLACK);
-        t.setBackground(Color.WHITE);
-        t.setSelectionBackground(new Color(184, 207, 229));
-        t.setSelectionForeground(Color.BLACK);
-        t.setGridColor(new Color(200, 200, 200));
-        t.setOpaque(false);
+        setFg(t, Color.BLACK);
+        setBg(t, Color.WHITE);
+        setTableColors(t, LIGHT_TABLE_SELECTION, Color.BLACK, LIGHT_TABLE_GRID);
+        setOpaque(t, false);
 
         JTableHeader hdr = t.getTableHeader();
         if (hdr != null) {
-            hdr.setForeground(Color.BLACK);
-            hdr.setBackground(Color.WHITE);
-            hdr.setOpaque(false);
+            setFg(hdr, Color.BLACK);
+            setBg(hdr, Color.WHITE);
+            setOpaque(hdr, false);
         }
     }
 
     // Wraps the table’s existing renderer to enforce dark colors without losing OEM icons/formatting.
     private static final class DarkDelegatingRenderer implements javax.swing.table.TableCellRenderer {
         private final javax.swing.table.TableCellRenderer base;
+        private final PainterState tableState;
         private final Color rowBg, rowAltBg, hoverBg, selectBg, fg;
 
-        DarkDelegatingRenderer(javax.swing.table.TableCellRenderer base,
+        DarkDelegatingRenderer(javax.swing.table.TableCellRenderer base, PainterState tableState,
                                Color rowBg, Color rowAltBg, Color hoverBg, Color selectBg, Color fg) {
             this.base = base;
+            this.tableState = tableState;
             this.rowBg = rowBg; this.rowAltBg = rowAltBg;
             this.hoverBg = hoverBg; this.selectBg = selectBg; this.fg = fg;
         }
@@ -925,9 +1494,7 @@ public final class DarkPainter {
             int modelRow = table.convertRowIndexToModel(row);
             Color bg = (modelRow % 2 == 0) ? rowBg : rowAltBg;
 
-            Object hoverObj = table.getClientProperty("dark.pe.hoverRow"); // reuse the same key
-            int hover = (hoverObj instanceof Integer) ? (Integer) hoverObj : -1;
-            if (row == hover && !isSelected) bg = hoverBg;
+            if (row == tableState.hoverRow && !isSelected) bg = hoverBg;
 
             if (c instanceof JComponent jc) {
                 if (isSelected) {
@@ -954,7 +1521,7 @@ public final class DarkPainter {
             Component c = base.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
             if (c instanceof JComponent jc) {
                 if (isSelected) {
-                    jc.setBackground(new Color(75, 110, 175));
+                    jc.setBackground(SELECTION_BG);
                     jc.setForeground(WHITE);
                     jc.setOpaque(true);
                 } else {
@@ -967,7 +1534,10 @@ public final class DarkPainter {
     }
 
     private static final class PEBooleanRenderer extends JCheckBox implements javax.swing.table.TableCellRenderer {
-        PEBooleanRenderer() {
+        private final PainterState tableState;
+
+        PEBooleanRenderer(PainterState tableState) {
+            this.tableState = tableState;
             setHorizontalAlignment(SwingConstants.CENTER);
             setBorderPainted(false);
             setFocusPainted(false);
@@ -980,9 +1550,7 @@ public final class DarkPainter {
 
             int modelRow = table.convertRowIndexToModel(row);
             Color bg = (modelRow % 2 == 0) ? PE_ROW_BG : PE_ROW_ALT_BG;
-            Object hoverObj = table.getClientProperty(PE_HOVER_ROW);
-            int hover = (hoverObj instanceof Integer) ? (Integer) hoverObj : -1;
-            if (row == hover && !isSelected) bg = PE_HOVER_BG;
+            if (row == tableState.hoverRow && !isSelected) bg = PE_HOVER_BG;
 
             if (isSelected) {
                 setBackground(PE_SELECT_BG);
@@ -998,15 +1566,20 @@ public final class DarkPainter {
 
 
     private static final class PropertyEditorTableRenderer extends DefaultTableCellRenderer {
+        private final PainterState tableState;
+
+        PropertyEditorTableRenderer(PainterState tableState) {
+            this.tableState = tableState;
+        }
+
         @Override
         public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
 
             super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
-            // subtle hover (same key you already use elsewhere)
-            Object hoverObj = table.getClientProperty(PE_HOVER_ROW); // "dark.pe.hoverRow"
-            int hover = (hoverObj instanceof Integer) ? (Integer) hoverObj : -1;
+            // subtle hover (row tracked by the table's hover listeners)
+            int hover = tableState.hoverRow;
 
             setForeground(WHITE);
             if (isSelected) {
@@ -1024,25 +1597,24 @@ public final class DarkPainter {
 
 
 
-    private static final String TB_HOOK = "dark.tb.hooked";
-
     private void ensureTagBrowserTableHooks(JTable t) {
-        if (Boolean.TRUE.equals(t.getClientProperty(TB_HOOK))) return;
-        t.putClientProperty(TB_HOOK, Boolean.TRUE);
+        PainterState st = state.of(t);
+        if (st.has(PainterState.TB_HOOK)) return;
+        st.set(PainterState.TB_HOOK);
+        ThemeEvents.TableHook ev = new ThemeEvents.TableHook();
+        ev.begin();
 
         // Base table chrome
-        t.setForeground(WHITE);
-        t.setBackground(GRAY_BG);
-        t.setSelectionBackground(new Color(75, 110, 175));
-        t.setSelectionForeground(WHITE);
-        t.setGridColor(new Color(100, 100, 100));
-        t.setOpaque(true);
+        setFg(t, WHITE);
+        setBg(t, GRAY_BG);
+        setTableColors(t, SELECTION_BG, WHITE, GRID);
+        setOpaque(t, true);
 
         JTableHeader hdr = t.getTableHeader();
         if (hdr != null) {
-            hdr.setForeground(WHITE);
-            hdr.setBackground(DARK_GRAY);
-            hdr.setOpaque(true);
+            setFg(hdr, WHITE);
+            setBg(hdr, DARK_GRAY);
+            setOpaque(hdr, true);
         }
 
         // Find the "Value" column and wrap its renderer (keep OEM, just darken)
@@ -1056,70 +1628,57 @@ public final class DarkPainter {
                 if (base == null) base = t.getDefaultRenderer(Object.class);
 
                 col.setCellRenderer(new DarkDelegatingRenderer(
-                        base, PE_ROW_BG, PE_ROW_ALT_BG, PE_HOVER_BG, PE_SELECT_BG, WHITE));
+                        base, st, PE_ROW_BG, PE_ROW_ALT_BG, PE_HOVER_BG, PE_SELECT_BG, WHITE));
             }
         }
 
         // Keep a subtle hover (non-sticky)
         t.addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
             @Override public void mouseMoved(java.awt.event.MouseEvent e) {
-                int row = t.rowAtPoint(e.getPoint());
-                t.putClientProperty("dark.pe.hoverRow", row);
+                st.hoverRow = t.rowAtPoint(e.getPoint());
                 t.repaint();
             }
         });
         t.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override public void mouseExited(java.awt.event.MouseEvent e) {
-                t.putClientProperty("dark.pe.hoverRow", -1);
+                st.hoverRow = -1;
                 t.repaint();
             }
             @Override public void mousePressed(java.awt.event.MouseEvent e) {
-                t.putClientProperty("dark.pe.hoverRow", -1);
+                st.hoverRow = -1;
                 t.repaint();
             }
         });
 
-        // Darken editor components while editing the Value cell
+        // Darken editor components while editing the Value cell (once per editor instance)
         t.addPropertyChangeListener(evt -> {
             if ("tableCellEditor".equals(evt.getPropertyName()) || "editing".equals(evt.getPropertyName())) {
-                Component ed = t.getEditorComponent();
-                if (ed != null) {
-                    paintDeep(ed); // reuse your painter
-                    if (ed instanceof JTextComponent tc) {
-                        tc.setForeground(WHITE);
-                        tc.setBackground(PE_HOVER_BG);
-                        tc.setCaretColor(WHITE);
-                        tc.setSelectionColor(PE_SELECT_BG);
-                        tc.setSelectedTextColor(WHITE);
-                        tc.setOpaque(true);
-                    } else if (ed instanceof JComponent jc) {
-                        jc.setForeground(WHITE);
-                        jc.setBackground(PE_HOVER_BG);
-                        jc.setOpaque(true);
-                    }
-                }
+                styleCellEditor(t);
             }
         });
+        counters.listenerInstalls += 3;
+        commitTableHook(ev, "TagBrowser", t);
     }
 
     private void ensurePropertyEditorTableHooks(JTable t) {
-        if (Boolean.TRUE.equals(t.getClientProperty(PE_HOOK))) return;
-        t.putClientProperty(PE_HOOK, Boolean.TRUE);
+        PainterState st = state.of(t);
+        if (st.has(PainterState.PE_HOOK)) return;
+        st.set(PainterState.PE_HOOK);
+        ThemeEvents.TableHook ev = new ThemeEvents.TableHook();
+        ev.begin();
 
         // Base table look
-        t.setForeground(WHITE);
-        t.setBackground(PE_ROW_BG);
-        t.setOpaque(true);
-        t.setGridColor(new Color(95, 95, 95));
-        t.setSelectionBackground(PE_SELECT_BG);
-        t.setSelectionForeground(WHITE);
+        setFg(t, WHITE);
+        setBg(t, PE_ROW_BG);
+        setOpaque(t, true);
+        setTableColors(t, PE_SELECT_BG, WHITE, PE_GRID);
 
         // Header
         JTableHeader hdr = t.getTableHeader();
         if (hdr != null) {
-            hdr.setForeground(WHITE);
-            hdr.setBackground(DARK_GRAY);
-            hdr.setOpaque(true);
+            setFg(hdr, WHITE);
+            setBg(hdr, DARK_GRAY);
+            setOpaque(hdr, true);
         }
 
         // Replace renderers for ALL columns (overrides any custom Property-Editor renderers)
@@ -1129,117 +1688,324 @@ public final class DarkPainter {
             Class<?> colClass = t.getColumnClass(i);
 
             TableCellRenderer r = Boolean.class.isAssignableFrom(colClass)
-                    ? new PEBooleanRenderer()
-                    : new PropertyEditorTableRenderer();
+                    ? new PEBooleanRenderer(st)
+                    : new PropertyEditorTableRenderer(st);
 
             col.setCellRenderer(r);
         }
 
 
         // Also set defaults as a safety net (covers any runtime column class changes)
-        t.setDefaultRenderer(Object.class,  new PropertyEditorTableRenderer());
-        t.setDefaultRenderer(String.class,  new PropertyEditorTableRenderer());
-        t.setDefaultRenderer(Boolean.class, new PEBooleanRenderer());
+        t.setDefaultRenderer(Object.class,  new PropertyEditorTableRenderer(st));
+        t.setDefaultRenderer(String.class,  new PropertyEditorTableRenderer(st));
+        t.setDefaultRenderer(Boolean.class, new PEBooleanRenderer(st));
 
 
         // Hover tracking (same feel as Tag Browser; clears on exit/press)
         t.addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
             @Override public void mouseMoved(java.awt.event.MouseEvent e) {
-                t.putClientProperty(PE_HOVER_ROW, t.rowAtPoint(e.getPoint()));
+                st.hoverRow = t.rowAtPoint(e.getPoint());
                 t.repaint();
             }
         });
         t.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override public void mouseExited(java.awt.event.MouseEvent e) {
-                t.putClientProperty(PE_HOVER_ROW, -1);
+                st.hoverRow = -1;
                 t.repaint();
             }
             @Override public void mousePressed(java.awt.event.MouseEvent e) {
-                t.putClientProperty(PE_HOVER_ROW, -1);
+                st.hoverRow = -1;
                 t.repaint();
             }
         });
 
 
-        // Darken editor components while editing
+        // Darken editor components while editing (once per editor instance)
         t.addPropertyChangeListener(evt -> {
             if ("tableCellEditor".equals(evt.getPropertyName()) || "editing".equals(evt.getPropertyName())) {
-                Component ed = t.getEditorComponent();
-                if (ed != null) {
-                    paintDeep(ed);
-                    if (ed instanceof JTextComponent tc) {
-                        tc.setForeground(WHITE);
-                        tc.setBackground(PE_HOVER_BG);
-                        tc.setCaretColor(WHITE);
-                        tc.setSelectionColor(PE_SELECT_BG);
-                        tc.setSelectedTextColor(WHITE);
-                        tc.setOpaque(true);
-                    } else if (ed instanceof JComponent jc) {
-                        jc.setForeground(WHITE);
-                        jc.setBackground(PE_HOVER_BG);
-                        jc.setOpaque(true);
-                    }
-                }
+                styleCellEditor(t);
             }
         });
+        counters.listenerInstalls += 3;
+        commitTableHook(ev, "PropertyEditor", t);
+    }
 
+    /**
+     * Styles the editor of a hooked table. Editors are reused for every edit, so each instance is styled
+     * once per theme generation and tracked by identity; an editor swapped in by OEM code is new and gets
+     * styled on its first use. Starting an edit with a known editor costs one side-table lookup.
+     */
+    private void styleCellEditor(JTable t) {
+        if (!darkMode) return;
+        Component ed = t.getEditorComponent();
+        if (ed == null) return;
+        if (isExcluded(t)) {
+            // styled before the table was excluded (editors outlive edits): hand it back light
+            PainterState st = state.peek(ed);
+            if (st != null && st.has(PainterState.EDITOR_STYLED)) {
+                st.flags &= ~PainterState.EDITOR_STYLED;
+                revertEditor(ed);
+            }
+            return;
+        }
+        if (isStyledEditor(ed)) return;
+        paintTree(ed);
+        if (ed instanceof JTextComponent tc) {
+            setFg(tc, WHITE);
+            setBg(tc, PE_HOVER_BG);
+            setCaret(tc, WHITE);
+            setTextSelection(tc, PE_SELECT_BG);
+            setSelectedText(tc, WHITE);
+            setOpaque(tc, true);
+        } else if (ed instanceof JComponent jc) {
+            setFg(jc, WHITE);
+            setBg(jc, PE_HOVER_BG);
+            setOpaque(jc, true);
+        }
+        PainterState st = state.of(ed);
+        st.set(PainterState.EDITOR_STYLED);
+        st.themedGen = themeGeneration;
     }
 
+    // Light pass over an editor of an excluded table (paintTree skips everything under it)
+    private void revertEditor(Component ed) {
+        counters.beginPass();
+        healer.mute();
+        try {
+            paintComponentDeep(ed, false);
+        } finally {
+            healer.unmute();
+            counters.endPass();
+        }
+    }
 
+    private boolean isStyledEditor(Component ed) {
+        PainterState st = state.peek(ed);
+        return st != null && st.has(PainterState.EDITOR_STYLED) && st.themedGen == themeGeneration;
+    }
 
+    private static void commitTableHook(ThemeEvents.TableHook ev, String region, JTable t) {
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.region = region;
+            ev.table = t.getClass().getName();
+            ev.columns = t.getColumnModel().getColumnCount();
+            ev.commit();
+        }
+    }
+
+
+
+
+    // ===== Code editors =====
+    private static final String FQCN_SYNTAX_TEXT_AREA = "org.fife.ui.rsyntaxtextarea.RSyntaxTextArea";
+
+    // true if the class is (a subclass of) RSyntaxTextArea; by name, so no library classes get loaded
+    private static final ClassValue<Boolean> IS_CODE_EDITOR = new ClassValue<>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            for (Class<?> k = type; k != null && k != JTextArea.class; k = k.getSuperclass()) {
+                if (FQCN_SYNTAX_TEXT_AREA.equals(k.getName())) return Boolean.TRUE;
+            }
+            return Boolean.FALSE;
+        }
+    };
+
+    private static boolean isCodeEditor(Component c) {
+        return c instanceof JTextArea && IS_CODE_EDITOR.get(c.getClass());
+    }
+
+    private CodeEditorTheme codeTheme() {
+        if (codeTheme == null) codeTheme = new CodeEditorTheme(counters);
+        return codeTheme;
+    }
 
     // ===== Popups =====
+    private final PopupHook popupHook = new PopupHook();
+
+    /**
+     * One shared hook for all popups and menus:
+     * - MenuSelectionManager changes catch every popup as it opens (incl. on-demand context menus);
+     * - a PopupMenuListener on each seen popup restyles it in popupMenuWillBecomeVisible.
+     * Either way the popup is styled at most once per theme generation, before its first paint.
+     */
+    private final class PopupHook implements PopupMenuListener, ChangeListener {
+        @Override public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+            if (e.getSource() instanceof JPopupMenu pm) themePopup(pm);
+        }
+        @Override public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {}
+        @Override public void popupMenuCanceled(PopupMenuEvent e) {}
+
+        @Override public void stateChanged(ChangeEvent e) {
+            for (MenuElement me : MenuSelectionManager.defaultManager().getSelectedPath()) {
+                if (me instanceof JPopupMenu pm) themePopup(pm);
+            }
+        }
+    }
+
+    private void themePopup(JPopupMenu pm) {
+        if (pm.getInvoker() != null && isExcluded(pm.getInvoker())) return; // menus of excluded subtrees too
+        PainterState st = state.of(pm);
+        if (st.has(PainterState.POPUP_HOOKED)) {
+            if (st.themedGen == themeGeneration) return;
+        } else {
+            pm.addPopupMenuListener(popupHook);
+            st.set(PainterState.POPUP_HOOKED);
+            counters.listenerInstalls++;
+        }
+        if (darkMode) stylePopup(pm);
+        else if (pm.getBackground() == GRAY_BG) revertPopupLight(pm); // only undo what we styled
+        st.themedGen = themeGeneration;
+    }
+
     private void stylePopup(JPopupMenu pm) {
         if (pm == null) return;
-        pm.setBackground(GRAY_BG);
-        pm.setForeground(WHITE);
+        setBg(pm, GRAY_BG);
+        setFg(pm, WHITE);
         for (MenuElement me : pm.getSubElements()) styleMenuElement(me);
     }
 
     private void styleMenuElement(MenuElement me) {
         Component c = me.getComponent();
         if (c instanceof JComponent jc) {
-            jc.setBackground(MENU_ITEM_BG);
-            jc.setForeground((jc.isEnabled() && !(jc instanceof JLabel)) ? WHITE : LIGHT_GRAY);
-            jc.setOpaque(true);
+            setBg(jc, MENU_ITEM_BG);
+            setFg(jc, (jc.isEnabled() && !(jc instanceof JLabel)) ? WHITE : LIGHT_GRAY);
+            setOpaque(jc, true);
         }
         for (MenuElement sub : me.getSubElements()) styleMenuElement(sub);
     }
 
     private void revertPopupLight(JPopupMenu pm) {
-        pm.setBackground(Color.WHITE);
-        pm.setForeground(Color.BLACK);
+        setBg(pm, Color.WHITE);
+        setFg(pm, Color.BLACK);
         for (MenuElement me : pm.getSubElements()) revertMenuElement(me);
     }
 
     private void revertMenuElement(MenuElement me) {
         Component c = me.getComponent();
         if (c instanceof JComponent jc) {
-            jc.setBackground(Color.WHITE);
-            jc.setForeground(jc.isEnabled() ? Color.BLACK : Color.GRAY);
-            jc.setOpaque(true);
+            setBg(jc, Color.WHITE);
+            setFg(jc, jc.isEnabled() ? Color.BLACK : Color.GRAY);
+            setOpaque(jc, true);
         }
         for (MenuElement sub : me.getSubElements()) revertMenuElement(sub);
     }
 
-    // ===== Match helpers =====
-    private static Set<String> setOf(String... s) { return new LinkedHashSet<>(Arrays.asList(s)); }
+    // ===== Counted setters (see PaintCounters) =====
+    // Each one compares with the component's own current value first and only writes when it differs,
+    // so a repeat pass over an unchanged UI fires no property changes, revalidates or repaints. During
+    // a dark visit the visited component's bg/fg/opaque go to the Target first (one write each).
+    // Colors compare by identity: an equal plain Color must still be replaced by the (mutable) token.
+    private void setBg(Component c, Color bg) {
+        if (c == target.of) {
+            target.bg = bg; // written once when the visit ends
+            return;
+        }
+        // surfaces forced opaque by the optimizer show their ancestor's color; it keeps that in sync
+        if ((c.isBackgroundSet() && c.getBackground() == bg) || (c.isOpaque() && opacityOptimizer.owns(c))) {
+            counters.settersElided++;
+            return;
+        }
+        counters.setterCalls++;
+        healer.mute(); // our own write, not a reset
+        try {
+            c.setBackground(bg);
+        } finally {
+            healer.unmute();
+        }
+    }
 
-    private boolean matches(Component c, Set<String> tokens) {
-        String simple = c.getClass().getSimpleName();
-        String name   = c.getClass().getName();
-        for (String t : tokens) {
-            if (t.contains("$")) {
-                // inner pattern: simple can be last token; or FQCN may endWith token
-                String inner = t.substring(t.lastIndexOf('$') + 1);
-                if (simple.equals(inner) || name.endsWith(t)) return true;
-            } else {
-                if (simple.equals(t) || name.endsWith("." + t)) return true;
-            }
+    private void setFg(Component c, Color fg) {
+        if (c == target.of) {
+            target.fg = fg;
+            return;
+        }
+        if (c.isForegroundSet() && c.getForeground() == fg) {
+            counters.settersElided++;
+            return;
+        }
+        counters.setterCalls++;
+        healer.mute(); // our own write, not a reset
+        try {
+            c.setForeground(fg);
+        } finally {
+            healer.unmute();
         }
-        return false;
     }
 
+    private void setOpaque(JComponent jc, boolean opaque) {
+        if (jc == target.of) {
+            target.opaque = opaque;
+            return;
+        }
+        if (jc.isOpaque() == opaque) {
+            counters.settersElided++;
+            return;
+        }
+        counters.setterCalls++;
+        healer.mute(); // our own write, not a reset
+        try {
+            jc.setOpaque(opaque);
+        } finally {
+            healer.unmute();
+        }
+    }
+
+    private void setCaret(JTextComponent tc, Color caret) {
+        if (tc.getCaretColor() == caret) {
+            counters.settersElided++;
+            return;
+        }
+        counters.setterCalls++;
+        tc.setCaretColor(caret);
+    }
+
+    private void setTextSelection(JTextComponent tc, Color selection) {
+        if (tc.getSelectionColor() == selection) {
+            counters.settersElided++;
+            return;
+        }
+        counters.setterCalls++;
+        tc.setSelectionColor(selection);
+    }
+
+    private void setSelectedText(JTextComponent tc, Color selectedText) {
+        if (tc.getSelectedTextColor() == selectedText) {
+            counters.settersElided++;
+            return;
+        }
+        counters.setterCalls++;
+        tc.setSelectedTextColor(selectedText);
+    }
+
+    private void setTableColors(JTable t, Color selectionBg, Color selectionFg, Color grid) {
+        if (t.getSelectionBackground() != selectionBg) {
+            counters.setterCalls++;
+            t.setSelectionBackground(selectionBg);
+        } else counters.settersElided++;
+        if (t.getSelectionForeground() != selectionFg) {
+            counters.setterCalls++;
+            t.setSelectionForeground(selectionFg);
+        } else counters.settersElided++;
+        if (t.getGridColor() != grid) {
+            counters.setterCalls++;
+            t.setGridColor(grid);
+        } else counters.settersElided++;
+    }
+
+    private void setListSelection(JList<?> list, Color selectionBg, Color selectionFg) {
+        if (list.getSelectionBackground() != selectionBg) {
+            counters.setterCalls++;
+            list.setSelectionBackground(selectionBg);
+        } else counters.settersElided++;
+        if (list.getSelectionForeground() != selectionFg) {
+            counters.setterCalls++;
+            list.setSelectionForeground(selectionFg);
+        } else counters.settersElided++;
+    }
+
+    // ===== Match helpers =====
+    private static Set<String> setOf(String... s) { return new LinkedHashSet<>(Arrays.asList(s)); }
+
     // ===== Optional: icon brightness swap (disabled vs enabled) =====
     @SuppressWarnings("unused")
     private void flipIcons(AbstractButton b, boolean dark) {
@@ -1262,6 +2028,8 @@ public final class DarkPainter {
 
     private double bright(Icon icon, Component ref) {
         int w = Math.max(1, icon.getIconWidth()), h = Math.max(1, icon.getIconHeight());
+        ThemeEvents.IconAnalysis ev = new ThemeEvents.IconAnalysis();
+        ev.begin();
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = img.createGraphics();
         icon.paintIcon(ref, g, 0, 0); g.dispose();
@@ -1271,6 +2039,12 @@ public final class DarkPainter {
             int r = (rgb >>> 16) & 0xff, gr = (rgb >>> 8) & 0xff, b = rgb & 0xff;
             sum += (r + gr + b) / 3;
         }
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.width = w;
+            ev.height = h;
+            ev.commit();
+        }
         return sum / (double) (w * h);
     }
 }
@@ -4,45 +4,102 @@ import com.inductiveautomation.ignition.common.licensing.LicenseState;
 import com.inductiveautomation.ignition.designer.model.AbstractDesignerModuleHook;
 import com.inductiveautomation.ignition.designer.model.DesignerContext;
 
+import com.example.darkmode.designer.spi.ThemeContribution;
+
 import javax.swing.*;
 import java.awt.*;
-import java.util.prefs.Preferences;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Inserts a single "Dark Mode" toggle in View menu and wires it to a robust painter.
- * Persists user preference in the Designer (per user)..
+ * Persists user settings in the Designer (per user profile) through a write-behind store.
  */
 public class DesignerDarkModeDesignerHook extends AbstractDesignerModuleHook {
 
-    private static final String PREF_KEY = "darkModeEnabled";
+    private static final System.Logger LOG = System.getLogger(DesignerDarkModeDesignerHook.class.getName());
+    // consecutive broken provider entries before a loader's iterator is given up on
+    private static final int MAX_PROVIDER_ERRORS = 16;
+
     private volatile boolean darkEnabled;
     private JCheckBoxMenuItem toggle;
     private DarkPainter painter;
+    private ThemeSettings settings;
 
     @Override
     public void startup(DesignerContext context, LicenseState activationState) throws Exception {
-        // Load last setting
-        darkEnabled = Preferences.userNodeForPackage(getClass()).getBoolean(PREF_KEY, false);
-        painter = DarkPainter.install(); // idempotent install (won't double-hook)
+        // Load settings in the background; the toggle starts from the in-memory default
+        settings = ThemeSettings.open(getClass(), System.getProperty("user.name"));
+        painter = DarkPainter.install(); // idempotent; hooks nothing until dark mode is turned on
+        painter.persistTo(settings); // runtime changes (palette, engine, caps, exclusions) are saved
 
         SwingUtilities.invokeLater(() -> {
+            registerContributions();
             JFrame main = findDesignerMain();
             if (main != null) {
                 JMenu view = findViewMenu(main);
                 if (view != null) {
                     ensureToggle(view);
+                    if (Boolean.getBoolean("darkmode.devtools")) addShapeCapture(view);
                 }
             }
-            // Sweep twice to catch late layout churn
-            painter.setDarkMode(darkEnabled);
-            SwingUtilities.invokeLater(() -> painter.setDarkMode(darkEnabled));
         });
+        settings.loaded().thenAccept(p -> SwingUtilities.invokeLater(() -> applyProfile(p)));
     }
 
     @Override
     public void shutdown() {
         // You can keep dark mode as user left it; no uninstall needed.
         // If you want to remove listeners, call painter.uninstall();
+        if (settings != null) settings.flush();
+    }
+
+    // Theming rules from other modules (spi.ThemeContribution), seen through our own and the context loader
+    private void registerContributions() {
+        Set<Class<?>> seen = new HashSet<>();
+        ClassLoader own = getClass().getClassLoader();
+        ClassLoader ctx = Thread.currentThread().getContextClassLoader();
+        for (ClassLoader cl : ctx != null && ctx != own ? List.of(own, ctx) : List.of(own)) {
+            Iterator<ThemeContribution> it = ServiceLoader.load(ThemeContribution.class, cl).iterator();
+            int errors = 0;
+            while (true) {
+                ThemeContribution c;
+                try {
+                    if (!it.hasNext()) break;
+                    c = it.next();
+                    errors = 0;
+                } catch (ServiceConfigurationError e) {
+                    // broken provider entry: skip it, keep the others (unless the iterator is stuck on it)
+                    LOG.log(System.Logger.Level.WARNING, "Skipping theme contribution provider", e);
+                    if (++errors >= MAX_PROVIDER_ERRORS) break;
+                    continue;
+                }
+                if (!seen.add(c.getClass())) continue;
+                try {
+                    painter.register(c); // all or nothing: a failing contribution leaves no rules behind
+                } catch (RuntimeException e) {
+                    // a faulty contribution must not take the module down
+                    LOG.log(System.Logger.Level.WARNING, "Theme contribution " + c.getClass().getName()
+                            + " failed; none of its rules were registered", e);
+                }
+            }
+        }
+    }
+
+    private void applyProfile(ThemeProfile p) {
+        darkEnabled = p.darkMode();
+        if (toggle != null) toggle.setSelected(darkEnabled);
+        painter.applyProfile(p); // not saved back; changes made before the load are already in p
+        // one sweep: late resets by OEM code are healed per component
+        painter.setDarkMode(darkEnabled);
     }
 
     private void ensureToggle(JMenu view) {
@@ -61,12 +118,36 @@ public class DesignerDarkModeDesignerHook extends AbstractDesignerModuleHook {
         toggle.putClientProperty(MARKER, Boolean.TRUE);
         toggle.addActionListener(e -> {
             boolean on = toggle.isSelected();
-            Preferences.userNodeForPackage(getClass()).putBoolean(PREF_KEY, on);
+            darkEnabled = on;
+            settings.update(p -> p.withDarkMode(on)); // memory now, storage later (off the EDT)
             painter.setDarkMode(on);
         });
         view.insert(toggle, 0);
     }
 
+    // Dev tools: snapshot the open windows' tree shapes for ShapeReplay (test tree; file written off the EDT)
+    private void addShapeCapture(JMenu view) {
+        JMenuItem capture = new JMenuItem("Capture Screen Shapes");
+        capture.addActionListener(e -> {
+            byte[] shapes;
+            try {
+                shapes = TreeShapes.captureWindows();
+            } catch (IOException ex) {
+                return; // in-memory stream
+            }
+            Path file = Path.of(System.getProperty("user.home"), "darkmode-shapes-" + System.currentTimeMillis() + ".bin");
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Files.write(file, shapes);
+                    LOG.log(System.Logger.Level.INFO, "Screen shapes written to " + file);
+                } catch (IOException ex) {
+                    LOG.log(System.Logger.Level.WARNING, "Screen shapes not written to " + file, ex);
+                }
+            });
+        });
+        view.insert(capture, 1);
+    }
+
     private static JFrame findDesignerMain() {
         for (Window w : Window.getWindows()) {
             if (w instanceof JFrame f && w.isDisplayable()) {
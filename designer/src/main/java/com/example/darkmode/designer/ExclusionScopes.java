@@ -0,0 +1,82 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Subtrees the painter leaves alone entirely: no descent, no listener installs, no classification.
+ * - By class: a window class or a region root, given as a fully-qualified or simple class name
+ *   ("Outer$Inner" for nested classes; exact class match, like isUnder); one ClassValue lookup per visit.
+ * - By marker: a JComponent whose {@link DarkPainter#EXCLUDE_PROPERTY} client property is TRUE.
+ *   Only looked at once some component was marked (see DarkPainter#markExcluded).
+ * Immutable: a toggle builds new scopes, so the painter can diff old vs new to revert what was
+ * newly excluded. {@link #NONE} is what the sweep sees when nothing is excluded (one boolean test).
+ */
+final class ExclusionScopes {
+
+    static final ExclusionScopes NONE = new ExclusionScopes(Set.of(), false);
+
+    private final Set<String> classes;
+    private final boolean markers;
+    private final ClassValue<Boolean> byClass = new ClassValue<>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            String n = type.getName();
+            return classes.contains(n) || classes.contains(n.substring(n.lastIndexOf('.') + 1));
+        }
+    };
+
+    private ExclusionScopes(Set<String> classes, boolean markers) {
+        this.classes = Collections.unmodifiableSet(new LinkedHashSet<>(classes)); // keeps the profile order
+        this.markers = markers;
+    }
+
+    boolean isEmpty() {
+        return classes.isEmpty() && !markers;
+    }
+
+    boolean excludes(Component c) {
+        if (byClass.get(c.getClass())) return true;
+        return markers && c instanceof JComponent jc && Boolean.TRUE.equals(jc.getClientProperty(DarkPainter.EXCLUDE_PROPERTY));
+    }
+
+    /** True if an ancestor of {@code c} is excluded (entry points below the window, e.g. dynamic adds). */
+    boolean excludesAncestorOf(Component c) {
+        for (Container p = c.getParent(); p != null; p = p.getParent()) {
+            if (excludes(p)) return true;
+        }
+        return false;
+    }
+
+    Set<String> classes() {
+        return classes;
+    }
+
+    boolean markers() {
+        return markers;
+    }
+
+    ExclusionScopes withClass(String className, boolean excluded) {
+        if (className == null || className.isBlank()) return this;
+        String n = className.strip();
+        if (classes.contains(n) == excluded) return this;
+        Set<String> next = new LinkedHashSet<>(classes);
+        if (excluded) next.add(n);
+        else next.remove(n);
+        return new ExclusionScopes(next, markers);
+    }
+
+    ExclusionScopes withClasses(Set<String> classNames) {
+        Set<String> next = new LinkedHashSet<>();
+        for (String n : classNames) {
+            if (n != null && !n.isBlank()) next.add(n.strip());
+        }
+        return next.equals(classes) ? this : new ExclusionScopes(next, markers);
+    }
+
+    ExclusionScopes withMarkers() {
+        return markers ? this : new ExclusionScopes(classes, true);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Registry for the OEM hover/highlight listeners we strip inside the Property Editor:
+ * - The "is this an OEM hover listener?" verdict is cached per listener class (no string scans per pass).
+ * - Each component (and the few ancestors OEM code installs on) is processed once, then skipped.
+ * - Detached listeners are remembered per component (weakly) and re-attached by {@link #restoreAll()}
+ *   when switching back to light mode, so toggling is reversible.
+ * EDT only.
+ */
+final class HoverListenerSurgery {
+
+    // Union of the name fragments of OEM hover trackers / row highlight overlays
+    private static final String[] TOKENS = {
+            "Hover", "ComponentTracker", "Highlight", "Overlay", "Rollover", "RowHigh"
+    };
+    // OEM often installs on containers a few levels up
+    private static final int ANCESTOR_LEVELS = 4;
+
+    private static final ClassValue<Boolean> IS_OEM_HOVER = new ClassValue<>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            String n = type.getName();
+            for (String t : TOKENS) if (n.contains(t)) return Boolean.TRUE;
+            return Boolean.FALSE;
+        }
+    };
+
+    private static final class Detached {
+        final List<MouseListener> mouse = new ArrayList<>(2);
+        final List<MouseMotionListener> motion = new ArrayList<>(2);
+    }
+
+    // processed components -> what we removed from them (empty when nothing matched)
+    private final Map<JComponent, Detached> processed = new WeakHashMap<>();
+
+    /** Strips OEM hover listeners from {@code c} and its nearest ancestors; returns how many were removed. */
+    int strip(Component c) {
+        int removed = 0;
+        if (c instanceof JComponent jc) removed += stripOne(jc);
+        Container p = c.getParent();
+        for (int i = 0; i < ANCESTOR_LEVELS && p != null; i++, p = p.getParent()) {
+            if (p instanceof JComponent pj) removed += stripOne(pj);
+        }
+        return removed;
+    }
+
+    private int stripOne(JComponent jc) {
+        if (processed.containsKey(jc)) return 0;
+        Detached d = new Detached();
+        for (MouseListener ml : jc.getMouseListeners()) {
+            if (IS_OEM_HOVER.get(ml.getClass())) {
+                jc.removeMouseListener(ml);
+                d.mouse.add(ml);
+            }
+        }
+        for (MouseMotionListener mml : jc.getMouseMotionListeners()) {
+            if (IS_OEM_HOVER.get(mml.getClass())) {
+                jc.removeMouseMotionListener(mml);
+                d.motion.add(mml);
+            }
+        }
+        processed.put(jc, d);
+        return d.mouse.size() + d.motion.size();
+    }
+
+    /** Re-attaches everything we detached and forgets all processed components. */
+    void restoreAll() {
+        for (Map.Entry<JComponent, Detached> e : processed.entrySet()) {
+            JComponent jc = e.getKey();
+            if (jc == null) continue;
+            for (MouseListener ml : e.getValue().mouse) jc.addMouseListener(ml);
+            for (MouseMotionListener mml : e.getValue().motion) jc.addMouseMotionListener(mml);
+        }
+        processed.clear();
+    }
+}
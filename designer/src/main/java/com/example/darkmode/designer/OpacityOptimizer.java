@@ -0,0 +1,195 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import javax.swing.plaf.ComponentUI;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Overdraw-/blit-aware opacity optimizer.
+ * The painter leaves most surfaces non-opaque to avoid "white boxes"; Swing then has to paint the
+ * ancestors behind every transparent child, and a JViewport only blits when its view is opaque.
+ * A component is forced opaque only when that is pixel-identical to leaving it transparent:
+ * - it is a plain surface (JPanel / JViewport / JScrollPane) that paints nothing but its background
+ *   (no paint/paintComponent override, and a UI delegate that doesn't override update/paint);
+ * - every non-opaque ancestor up to the nearest opaque one is background-only too, so the color
+ *   showing through is exactly that ancestor's (solid) background, which we then paint ourselves;
+ * - neither its parent nor any ancestor up to that opaque one overlaps children
+ *   (isOptimizedDrawingEnabled), so no sibling gets hidden.
+ * An opaque view is what lets a default (BLIT_SCROLL_MODE) viewport blit. Viewports their owner put in
+ * SIMPLE or BACKINGSTORE mode are left alone and only reported ({@link #blitCandidates}).
+ * Everything changed is remembered weakly, with the background it had, and undone by
+ * {@link #restoreAll()} when going light (or by {@link #release} for a single excluded subtree). EDT only.
+ */
+final class OpacityOptimizer {
+
+    // true if the class paints nothing beyond what its javax.swing/java.awt base paints
+    private static final ClassValue<Boolean> BACKGROUND_ONLY = new ClassValue<>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            for (Class<?> k = type; k != null && !isPlatform(k); k = k.getSuperclass()) {
+                if (declares(k, "paintComponent", Graphics.class) || declares(k, "paint", Graphics.class)) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    };
+
+    // same question for UI delegates (LAFs that paint textures/gradients in update/paint are rejected)
+    private static final ClassValue<Boolean> UI_BACKGROUND_ONLY = new ClassValue<>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            for (Class<?> k = type; k != null && !isPlatform(k); k = k.getSuperclass()) {
+                if (declares(k, "update", Graphics.class, JComponent.class)
+                        || declares(k, "paint", Graphics.class, JComponent.class)) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    };
+
+    private final PaintCounters counters;
+    // component -> background before it was forced (null = inherited from the parent)
+    private final Map<JComponent, Color> forced = new WeakHashMap<>();
+
+    OpacityOptimizer(PaintCounters counters) {
+        this.counters = counters;
+    }
+
+    /** Forces {@code c} opaque if that is visually identical; returns true when it did. */
+    boolean optimize(Component c) {
+        boolean changed = false;
+        if (c instanceof JComponent jc && forced.containsKey(jc)) {
+            // a later sweep re-applied the category bg (invisible before we forced it): restore what showed through
+            Color visible = visibleBackground(jc);
+            if (visible == null) {
+                counters.setterCalls += 2;
+                restore(jc, forced.remove(jc));
+            } else if (jc.getBackground() != visible) {
+                counters.setterCalls++;
+                jc.setBackground(visible);
+            }
+        } else if (c instanceof JComponent jc && isCandidate(jc)) {
+            Color visible = visibleBackground(jc);
+            if (visible != null) {
+                counters.setterCalls += 2;
+                forced.put(jc, jc.isBackgroundSet() ? jc.getBackground() : null);
+                jc.setBackground(visible);
+                jc.setOpaque(true);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Viewports under {@code root} that can't blit today but could (view opaque-able), for reports;
+     * includes the ones left in a non-blit scroll mode by their owner.
+     */
+    List<JViewport> blitCandidates(Component root) {
+        List<JViewport> out = new ArrayList<>();
+        collectBlitCandidates(root, out);
+        return out;
+    }
+
+    void restoreAll() {
+        for (Map.Entry<JComponent, Color> e : forced.entrySet()) {
+            if (e.getKey() != null) restore(e.getKey(), e.getValue());
+        }
+        forced.clear();
+    }
+
+    /** Undoes what was done to {@code c} alone (a subtree going light while the rest stays dark). */
+    void release(Component c) {
+        if (c instanceof JComponent jc && forced.containsKey(jc)) {
+            counters.setterCalls += 2;
+            restore(jc, forced.remove(jc));
+        }
+    }
+
+    /** True if {@code c} is currently forced opaque by this optimizer (its background is ours). */
+    boolean owns(Component c) {
+        return c instanceof JComponent jc && forced.containsKey(jc);
+    }
+
+    int forcedCount() {
+        return forced.size();
+    }
+
+    private static void restore(JComponent jc, Color background) {
+        jc.setOpaque(false);
+        jc.setBackground(background);
+    }
+
+    private void collectBlitCandidates(Component c, List<JViewport> out) {
+        if (c instanceof JViewport vp) {
+            Component view = vp.getView();
+            boolean opaqueView = view != null && (view.isOpaque()
+                    || (view instanceof JComponent vj && isCandidate(vj) && visibleBackground(vj) != null));
+            if (opaqueView && (!view.isOpaque() || vp.getScrollMode() != JViewport.BLIT_SCROLL_MODE)) out.add(vp);
+        }
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) collectBlitCandidates(ch, out);
+        }
+    }
+
+    private static boolean isCandidate(JComponent jc) {
+        if (jc.isOpaque()) return false;
+        if (!(jc instanceof JPanel || jc instanceof JViewport || jc instanceof JScrollPane)) return false;
+        if (!paintsBackgroundOnly(jc)) return false;
+        // a sibling of any transparent ancestor could overlap it just as well as one of its own
+        for (Container p = jc.getParent(); p instanceof JComponent pj; p = p.getParent()) {
+            if (!pj.isOptimizedDrawingEnabled()) return false;
+            if (pj.isOpaque()) break;
+        }
+        return true;
+    }
+
+    // Solid color currently showing through jc, or null if anything else could show through
+    private static Color visibleBackground(JComponent jc) {
+        for (Container p = jc.getParent(); p != null; p = p.getParent()) {
+            if (!(p instanceof JComponent pj)) return null; // stop at heavyweight/window boundaries
+            if (!isPlainSurface(pj) || !paintsBackgroundOnly(pj)) return null;
+            if (pj.isOpaque()) {
+                Color bg = pj.getBackground();
+                return (bg != null && bg.getAlpha() == 255) ? bg : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPlainSurface(JComponent jc) {
+        return jc instanceof JPanel || jc instanceof JViewport || jc instanceof JScrollPane
+                || jc instanceof JRootPane || jc instanceof JLayeredPane;
+    }
+
+    private static boolean paintsBackgroundOnly(JComponent jc) {
+        if (!BACKGROUND_ONLY.get(jc.getClass())) return false;
+        ComponentUI ui = null;
+        if (jc instanceof JPanel p) ui = p.getUI();
+        else if (jc instanceof JViewport v) ui = v.getUI();
+        else if (jc instanceof JScrollPane s) ui = s.getUI();
+        else if (jc instanceof JRootPane r) ui = r.getUI();
+        // JLayeredPane has no UI delegate: nothing painted beyond the component itself
+        return ui == null || UI_BACKGROUND_ONLY.get(ui.getClass());
+    }
+
+    private static boolean isPlatform(Class<?> k) {
+        String n = k.getName();
+        return n.startsWith("javax.swing.") || n.startsWith("java.awt.");
+    }
+
+    private static boolean declares(Class<?> k, String name, Class<?>... params) {
+        try {
+            k.getDeclaredMethod(name, params);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        } catch (SecurityException | LinkageError e) {
+            return true; // can't tell: be conservative
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import javax.swing.plaf.LayerUI;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Paint-time dark mode ({@link ThemeProfile.Engine#PAINT_TIME}): nothing is styled, colors are remapped as drawn.
+ * - Each window's layered pane (content, menu bar, lightweight popups) is wrapped in a JLayer whose
+ *   UI hands the painting code a {@link RemapGraphics}. A JLayer is a painting origin, so repaints
+ *   of any descendant go through it too. Heavyweight popups and new dialogs are windows of their
+ *   own and get one when they get their peer, before they are shown (see {@link WindowHooks}).
+ * - Light colors map to dark ones with the same hue and chroma through the painter's
+ *   {@link ColorMapper}; images (icons) are drawn as they are.
+ * - Toggling wraps/unwraps one layer per window and repaints: the cost doesn't depend on how many
+ *   components there are, and OEM code resetting a color can't undo it.
+ * - Scroll panes can't blit under the layer: JViewport's blit paints the exposed strip straight
+ *   onto the viewport, around the layer, so it would come out light. The layer's glass pane (a
+ *   sibling covering the layered pane of a JLayer, which never claims optimized drawing) makes
+ *   JViewport.canUseWindowBlitter refuse, and each scroll step repaints the whole viewport through
+ *   the remapper instead. EngineBenchmark (test tree) measures that cost per step.
+ * The root pane keeps its layered pane (getLayeredPane/getContentPane are unchanged); only the
+ * parent of the layered pane becomes the JLayer, and it is moved there without being re-realized.
+ * EDT only.
+ */
+final class PaintTimeEngine {
+
+    /** How a root pane looked before its layered pane got wrapped. */
+    private record Wrapped(JLayer<JComponent> layer, LayoutManager layout, JLayeredPane layeredPane) {}
+
+    private final Map<JRootPane, Wrapped> wrapped = new WeakHashMap<>();
+    private final LayerUI<JComponent> ui = new RemapUI();
+    private final ColorMapper colors;
+    private final WindowHooks windowHooks;
+    private boolean enabled;
+
+    PaintTimeEngine(ColorMapper colors, PaintCounters counters) {
+        this.colors = colors;
+        this.windowHooks = new WindowHooks(counters, this::wrap);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean on) {
+        if (on == enabled) return;
+        enabled = on;
+        if (on) {
+            windowHooks.start();
+            for (Window w : Window.getWindows()) {
+                windowHooks.hook(w); // not displayable yet: wrapped when shown
+                if (w.isDisplayable()) wrap(w);
+            }
+        } else {
+            windowHooks.stop();
+            for (JRootPane root : new ArrayList<>(wrapped.keySet())) {
+                if (root != null) unwrap(root);
+            }
+        }
+    }
+
+    /** New palette values (the mapper is already reset): repaint what is remapped. */
+    void paletteChanged() {
+        for (JRootPane root : wrapped.keySet()) {
+            if (root != null) root.repaint();
+        }
+    }
+
+    int layerCount() {
+        return wrapped.size();
+    }
+
+    /**
+     * Puts {@code child} of {@code parent} under a remapping layer, at the child's index. The child is
+     * moved with setComponentZOrder, which keeps its native resources (no removeNotify/addNotify of
+     * the whole tree), so it is not the layer's view: the caller lays it out. Returns null if
+     * {@code child} isn't a child of {@code parent}.
+     */
+    JLayer<JComponent> insertLayer(Container parent, JComponent child) {
+        int index = indexOf(parent, child);
+        if (index < 0) return null;
+        JLayer<JComponent> layer = new JLayer<>(null, ui);
+        parent.add(layer, index);
+        // under the layer's glass pane, which also keeps viewports from blitting around the layer
+        layer.setComponentZOrder(child, layer.getComponentCount());
+        return layer;
+    }
+
+    /** Undoes {@link #insertLayer}: the child goes back to the layer's index in {@code parent}. */
+    static void removeLayer(Container parent, JLayer<JComponent> layer, Component child) {
+        int index = indexOf(parent, layer);
+        if (index < 0) return;
+        if (child.getParent() == layer) parent.setComponentZOrder(child, index);
+        parent.remove(layer);
+    }
+
+    // ===== Windows =====
+    private void wrap(Window w) {
+        if (!enabled || !w.isDisplayable() || !(w instanceof RootPaneContainer rpc)) return;
+        JRootPane root = rpc.getRootPane();
+        if (root == null || wrapped.containsKey(root)) return;
+        JLayeredPane lp = root.getLayeredPane();
+        LayoutManager layout = root.getLayout();
+        JLayer<JComponent> layer = insertLayer(root, lp);
+        if (layer == null) return;
+        root.setLayout(new LayerLayout(layout, layer, lp));
+        wrapped.put(root, new Wrapped(layer, layout, lp));
+        root.revalidate();
+        root.repaint();
+    }
+
+    private void unwrap(JRootPane root) {
+        Wrapped wr = wrapped.remove(root);
+        if (wr == null) return;
+        removeLayer(root, wr.layer(), wr.layeredPane());
+        root.setLayout(wr.layout());
+        root.revalidate();
+        root.repaint();
+    }
+
+    private static int indexOf(Container parent, Component c) {
+        Component[] children = parent.getComponents();
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The root pane's own layout still sizes the layered pane (its field); this moves that size onto
+     * the layer and puts the layered pane at the layer's origin.
+     */
+    private static final class LayerLayout implements LayoutManager2 {
+        private final LayoutManager root;
+        private final JLayer<JComponent> layer;
+        private final JComponent view;
+
+        LayerLayout(LayoutManager root, JLayer<JComponent> layer, JComponent view) {
+            this.root = root;
+            this.layer = layer;
+            this.view = view;
+        }
+
+        @Override public void layoutContainer(Container parent) {
+            root.layoutContainer(parent);
+            Rectangle r = view.getBounds();
+            layer.setBounds(r);
+            view.setBounds(0, 0, r.width, r.height);
+        }
+
+        @Override public Dimension preferredLayoutSize(Container parent) { return root.preferredLayoutSize(parent); }
+        @Override public Dimension minimumLayoutSize(Container parent) { return root.minimumLayoutSize(parent); }
+        @Override public void addLayoutComponent(String name, Component comp) { root.addLayoutComponent(name, comp); }
+        @Override public void removeLayoutComponent(Component comp) { root.removeLayoutComponent(comp); }
+
+        @Override public void addLayoutComponent(Component comp, Object constraints) {
+            if (root instanceof LayoutManager2 lm2) lm2.addLayoutComponent(comp, constraints);
+        }
+
+        @Override public Dimension maximumLayoutSize(Container target) {
+            return root instanceof LayoutManager2 lm2 ? lm2.maximumLayoutSize(target)
+                    : new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        @Override public float getLayoutAlignmentX(Container target) {
+            return root instanceof LayoutManager2 lm2 ? lm2.getLayoutAlignmentX(target) : 0f;
+        }
+
+        @Override public float getLayoutAlignmentY(Container target) {
+            return root instanceof LayoutManager2 lm2 ? lm2.getLayoutAlignmentY(target) : 0f;
+        }
+
+        @Override public void invalidateLayout(Container target) {
+            if (root instanceof LayoutManager2 lm2) lm2.invalidateLayout(target);
+        }
+    }
+
+    // One UI shared by every layer (stateless)
+    private final class RemapUI extends LayerUI<JComponent> {
+        @Override public void paint(Graphics g, JComponent c) {
+            if (!(g instanceof Graphics2D g2) || g instanceof RemapGraphics) {
+                super.paint(g, c);
+                return;
+            }
+            Graphics2D rg = new RemapGraphics((Graphics2D) g2.create(), PaintTimeEngine.this);
+            try {
+                super.paint(rg, c);
+            } finally {
+                rg.dispose();
+            }
+        }
+    }
+
+    // ===== Color mapping =====
+    /** Dark equivalent of {@code c} (see {@link ColorMapper}). */
+    Color map(Color c) {
+        return colors.color(c);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.darkmode.designer;
+
+import java.awt.*;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Per-component painter bookkeeping, packed into one small object instead of several client properties.
+ * - Boolean facts (fixed, hooked, wrapped, ...) are bits in {@link #flags}; counters are primitive fields.
+ * - Instances live in a weak side {@link Table}, so themed components carry nothing in their own
+ *   client-property table and the state goes away with the component.
+ * - Renderers and listeners keep a direct reference to their table's state, so hot-path reads
+ *   (e.g. the hover row while rendering each cell) are a plain field access.
+ * EDT only.
+ */
+final class PainterState {
+
+    // ===== Flags =====
+    static final int PE_FIXED        = 1;       // fixPropertyEditorWhites handled this component
+    static final int FOCUS_TINT      = 1 << 1;  // Property Editor editor that gets the focus tint
+    static final int TB_HOOK         = 1 << 2;  // Tag Browser table renderers/listeners installed
+    static final int PE_HOOK         = 1 << 3;  // Property Editor table renderers/listeners installed
+    static final int CONSOLE_WRAPPED = 1 << 4;  // console document listeners installed
+    static final int POPUP_HOOKED    = 1 << 5;  // PopupMenuListener added
+    static final int WINDOW_THEMED   = 1 << 6;  // window swept at least once (see themedGen)
+    static final int EDITOR_STYLED   = 1 << 7;  // table cell editor styled (see themedGen)
+    static final int HEAL_WATCHED    = 1 << 8;  // StyleHealer listener added
+    static final int CONSOLE_DARK    = 1 << 9;  // console text carries the dark colors (see ConsoleHighlighter.strip)
+
+    // themedGen of a component a subtree revert made light: the next theming pass styles it again
+    static final int STALE = -1;
+
+    int flags;
+    // Table row under the mouse (-1 = none)
+    int hoverRow = -1;
+    // Theme generation a popup/window/editor was last styled for (STALE after a subtree revert)
+    int themedGen;
+    // Heals since the theme generation in healGen (see DarkPainter.heal)
+    int heals;
+    int healGen;
+
+    boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    void set(int flag) {
+        flags |= flag;
+    }
+
+    /** Weak identity map from component to its state (Components don't override equals/hashCode). */
+    static final class Table {
+        private final Map<Component, PainterState> states = new WeakHashMap<>();
+
+        /** State for {@code c}, or null if the painter never recorded anything for it. */
+        PainterState peek(Component c) {
+            return states.get(c);
+        }
+
+        /** State for {@code c}, created on first use. */
+        PainterState of(Component c) {
+            PainterState s = states.get(c);
+            if (s == null) {
+                s = new PainterState();
+                states.put(c, s);
+            }
+            return s;
+        }
+
+        boolean has(Component c, int flag) {
+            PainterState s = states.get(c);
+            return s != null && (s.flags & flag) != 0;
+        }
+
+        int size() {
+            return states.size();
+        }
+    }
+}
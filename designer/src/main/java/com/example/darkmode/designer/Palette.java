@@ -0,0 +1,35 @@
+package com.example.darkmode.designer;
+
+/**
+ * Dark palette variants. Each constant lists one RGB value per {@link ThemeTokens} token, in the
+ * order of {@link ThemeTokens#ALL}. Switching palettes rewrites the token values in place
+ * (see {@link DarkPainter#setPalette(Palette)}), so it costs one repaint per window.
+ */
+public enum Palette {
+    //             GRAY_BG   GRAY_BG_ALT DARK_GRAY  TEXT      TEXT_ON_LT LIGHT_GRAY LIGHT2    MENU_ITEM
+    //             PE_ROW    PE_ROW_ALT  PE_HOVER   PE_SELECT SEL_BLUE   SELECTION  GRID      PE_GRID   TEXT_SEL
+    //             CODE_BG   CODE_LINE   CODE_TEXT  COMMENT   KEYWORD    STRING     NUMBER    FUNCTION
+    //             LOG_ERROR ERROR_LVL   LOG_WARN   WARN_LVL  LOG_INFO   LOG_MUTED  LOGGER
+    DARK(          0x3C3F41, 0x293134,   0x606060,  0xFFFFFF, 0x000000,  0xB4B4B4,  0xF1F1F1, 0x505960,
+                   0x3A3C3E, 0x343638,   0x46494C,  0x4B6EAF, 0x48A9E6,  0x4B6EAF,  0x646464, 0x5F5F5F, 0x607D8B,
+                   0x2B2B2B, 0x323232,   0xA9B7C6,  0x808080, 0xCC7832,  0x6A8759,  0x6897BB, 0xFFC66D,
+                   0xFF8080, 0xFF6464,   0xE6BE64,  0xF0B43C, 0x6EAAE6,  0x969696,  0x78C8BE),
+    DARKER(        0x2B2B2B, 0x1E1F22,   0x3C3F41,  0xDCDCDC, 0x000000,  0x969696,  0xC8C8C8, 0x32383C,
+                   0x282A2C, 0x232527,   0x373A3D,  0x2D508C, 0x3C8CC8,  0x2D508C,  0x464646, 0x414141, 0x465F6E,
+                   0x1E1F22, 0x26282B,   0xBCBEC4,  0x7A7E85, 0xCF8E6D,  0x6AAB73,  0x2AACB8, 0x56A8F5,
+                   0xE07070, 0xF05A5A,   0xD2AA5A,  0xDCA032, 0x5A96D2,  0x828282,  0x64B4AA),
+    HIGH_CONTRAST( 0x000000, 0x000000,   0x1E1E1E,  0xFFFFFF, 0x000000,  0xC8C8C8,  0xFFFFFF, 0x141414,
+                   0x000000, 0x121212,   0x323232,  0x005AC8, 0x00A0FF,  0x005AC8,  0x8C8C8C, 0x8C8C8C, 0x005AC8,
+                   0x000000, 0x1A1A1A,   0xFFFFFF,  0x7CA668, 0x569CD6,  0xCE9178,  0xB5CEA8, 0xDCDCAA,
+                   0xFF6060, 0xFF4040,   0xFFD700,  0xFFC000, 0x40A0FF,  0xB4B4B4,  0x00E0C0);
+
+    private final int[] rgb;
+
+    Palette(int... rgb) {
+        this.rgb = rgb;
+    }
+
+    int rgb(int tokenIndex) {
+        return rgb[tokenIndex];
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.darkmode.designer;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+/**
+ * Graphics2D that draws everything through a delegate but with remapped colors (see {@link PaintTimeEngine}).
+ * - Colors are remapped when they are set (setColor / setPaint / setBackground / image bgcolor), so
+ *   drawing calls cost nothing extra; getters return what the caller set, so read-modify-write code
+ *   (brighter(), darker(), save/restore) never remaps twice.
+ * - Images are drawn untouched: icons keep their colors.
+ * - create() wraps the child graphics, so every component painted under the layer is covered.
+ */
+final class RemapGraphics extends Graphics2D {
+
+    private final Graphics2D g;
+    private final PaintTimeEngine engine;
+    // what the caller set (the delegate holds the remapped values)
+    private Color color;
+    private Paint paint;
+    private Color background;
+
+    RemapGraphics(Graphics2D g, PaintTimeEngine engine) {
+        this.g = g;
+        this.engine = engine;
+        setColor(g.getColor());
+        if (!(g.getPaint() instanceof Color)) setPaint(g.getPaint());
+        setBackground(g.getBackground());
+    }
+
+    private RemapGraphics(Graphics2D g, RemapGraphics from) {
+        this.g = g;
+        this.engine = from.engine;
+        this.color = from.color;
+        this.paint = from.paint;
+        this.background = from.background;
+    }
+
+    // ===== Remapped state =====
+    @Override public void setColor(Color c) {
+        if (c == null) return; // as Graphics2D implementations do
+        color = c;
+        paint = c;
+        g.setColor(engine.map(c));
+    }
+
+    @Override public Color getColor() {
+        return color;
+    }
+
+    @Override public void setPaint(Paint p) {
+        if (p == null) return;
+        if (p instanceof Color c) {
+            setColor(c);
+            return;
+        }
+        paint = p;
+        if (p instanceof GradientPaint gp) {
+            g.setPaint(new GradientPaint(gp.getPoint1(), engine.map(gp.getColor1()),
+                    gp.getPoint2(), engine.map(gp.getColor2()), gp.isCyclic()));
+        } else {
+            g.setPaint(p); // textures, multi-stop gradients: as is
+        }
+    }
+
+    @Override public Paint getPaint() {
+        return paint;
+    }
+
+    @Override public void setBackground(Color c) {
+        background = c;
+        g.setBackground(c == null ? null : engine.map(c));
+    }
+
+    @Override public Color getBackground() {
+        return background;
+    }
+
+    @Override public void setXORMode(Color c) {
+        g.setXORMode(c);
+    }
+
+    @Override public void setPaintMode() {
+        g.setPaintMode();
+    }
+
+    // ===== Images (never remapped, except a fill color) =====
+    @Override public boolean drawImage(Image img, int x, int y, ImageObserver o) {
+        return g.drawImage(img, x, y, o);
+    }
+
+    @Override public boolean drawImage(Image img, int x, int y, int w, int h, ImageObserver o) {
+        return g.drawImage(img, x, y, w, h, o);
+    }
+
+    @Override public boolean drawImage(Image img, int x, int y, Color bg, ImageObserver o) {
+        return g.drawImage(img, x, y, engine.map(bg), o);
+    }
+
+    @Override public boolean drawImage(Image img, int x, int y, int w, int h, Color bg, ImageObserver o) {
+        return g.drawImage(img, x, y, w, h, engine.map(bg), o);
+    }
+
+    @Override public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                                       int sx1, int sy1, int sx2, int sy2, ImageObserver o) {
+        return g.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, o);
+    }
+
+    @Override public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                                       int sx1, int sy1, int sx2, int sy2, Color bg, ImageObserver o) {
+        return g.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, engine.map(bg), o);
+    }
+
+    @Override public boolean drawImage(Image img, AffineTransform xform, ImageObserver o) {
+        return g.drawImage(img, xform, o);
+    }
+
+    @Override public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+        g.drawImage(img, op, x, y);
+    }
+
+    @Override public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+        g.drawRenderedImage(img, xform);
+    }
+
+    @Override public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+        g.drawRenderableImage(img, xform);
+    }
+
+    // ===== Plain delegation =====
+    @Override public Graphics create() {
+        return new RemapGraphics((Graphics2D) g.create(), this);
+    }
+
+    @Override public void dispose() { g.dispose(); }
+
+    /**
+     * Empty on purpose, like SunGraphics2D's: Graphics.finalize() would make every wrapper (one per
+     * painted component) a finalizable object, which costs more than the remapping itself.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    @Override public void finalize() {}
+
+    @Override public void draw(Shape s) { g.draw(s); }
+    @Override public void fill(Shape s) { g.fill(s); }
+    @Override public boolean hit(Rectangle rect, Shape s, boolean onStroke) { return g.hit(rect, s, onStroke); }
+    @Override public void drawString(String str, int x, int y) { g.drawString(str, x, y); }
+    @Override public void drawString(String str, float x, float y) { g.drawString(str, x, y); }
+    @Override public void drawString(AttributedCharacterIterator it, int x, int y) { g.drawString(it, x, y); }
+    @Override public void drawString(AttributedCharacterIterator it, float x, float y) { g.drawString(it, x, y); }
+    @Override public void drawChars(char[] data, int offset, int length, int x, int y) { g.drawChars(data, offset, length, x, y); }
+    @Override public void drawGlyphVector(GlyphVector gv, float x, float y) { g.drawGlyphVector(gv, x, y); }
+    @Override public void drawLine(int x1, int y1, int x2, int y2) { g.drawLine(x1, y1, x2, y2); }
+    @Override public void drawRect(int x, int y, int w, int h) { g.drawRect(x, y, w, h); }
+    @Override public void fillRect(int x, int y, int w, int h) { g.fillRect(x, y, w, h); }
+    @Override public void clearRect(int x, int y, int w, int h) { g.clearRect(x, y, w, h); }
+    @Override public void drawRoundRect(int x, int y, int w, int h, int aw, int ah) { g.drawRoundRect(x, y, w, h, aw, ah); }
+    @Override public void fillRoundRect(int x, int y, int w, int h, int aw, int ah) { g.fillRoundRect(x, y, w, h, aw, ah); }
+    @Override public void drawOval(int x, int y, int w, int h) { g.drawOval(x, y, w, h); }
+    @Override public void fillOval(int x, int y, int w, int h) { g.fillOval(x, y, w, h); }
+    @Override public void drawArc(int x, int y, int w, int h, int sa, int aa) { g.drawArc(x, y, w, h, sa, aa); }
+    @Override public void fillArc(int x, int y, int w, int h, int sa, int aa) { g.fillArc(x, y, w, h, sa, aa); }
+    @Override public void drawPolyline(int[] xs, int[] ys, int n) { g.drawPolyline(xs, ys, n); }
+    @Override public void drawPolygon(int[] xs, int[] ys, int n) { g.drawPolygon(xs, ys, n); }
+    @Override public void fillPolygon(int[] xs, int[] ys, int n) { g.fillPolygon(xs, ys, n); }
+    @Override public void copyArea(int x, int y, int w, int h, int dx, int dy) { g.copyArea(x, y, w, h, dx, dy); }
+
+    @Override public Font getFont() { return g.getFont(); }
+    @Override public void setFont(Font font) { g.setFont(font); }
+    @Override public FontMetrics getFontMetrics(Font f) { return g.getFontMetrics(f); }
+    @Override public FontRenderContext getFontRenderContext() { return g.getFontRenderContext(); }
+    @Override public GraphicsConfiguration getDeviceConfiguration() { return g.getDeviceConfiguration(); }
+    @Override public Composite getComposite() { return g.getComposite(); }
+    @Override public void setComposite(Composite comp) { g.setComposite(comp); }
+    @Override public Stroke getStroke() { return g.getStroke(); }
+    @Override public void setStroke(Stroke s) { g.setStroke(s); }
+    @Override public Object getRenderingHint(RenderingHints.Key key) { return g.getRenderingHint(key); }
+    @Override public void setRenderingHint(RenderingHints.Key key, Object value) { g.setRenderingHint(key, value); }
+    @Override public RenderingHints getRenderingHints() { return g.getRenderingHints(); }
+    @Override public void setRenderingHints(Map<?, ?> hints) { g.setRenderingHints(hints); }
+    @Override public void addRenderingHints(Map<?, ?> hints) { g.addRenderingHints(hints); }
+
+    @Override public void translate(int x, int y) { g.translate(x, y); }
+    @Override public void translate(double tx, double ty) { g.translate(tx, ty); }
+    @Override public void rotate(double theta) { g.rotate(theta); }
+    @Override public void rotate(double theta, double x, double y) { g.rotate(theta, x, y); }
+    @Override public void scale(double sx, double sy) { g.scale(sx, sy); }
+    @Override public void shear(double shx, double shy) { g.shear(shx, shy); }
+    @Override public void transform(AffineTransform tx) { g.transform(tx); }
+    @Override public void setTransform(AffineTransform tx) { g.setTransform(tx); }
+    @Override public AffineTransform getTransform() { return g.getTransform(); }
+
+    @Override public Rectangle getClipBounds() { return g.getClipBounds(); }
+    @Override public Rectangle getClipBounds(Rectangle r) { return g.getClipBounds(r); }
+    @Override public boolean hitClip(int x, int y, int w, int h) { return g.hitClip(x, y, w, h); }
+    @Override public void clipRect(int x, int y, int w, int h) { g.clipRect(x, y, w, h); }
+    @Override public void clip(Shape s) { g.clip(s); }
+    @Override public void setClip(int x, int y, int w, int h) { g.setClip(x, y, w, h); }
+    @Override public void setClip(Shape clip) { g.setClip(clip); }
+    @Override public Shape getClip() { return g.getClip(); }
+}
@@ -0,0 +1,89 @@
+package com.example.darkmode.designer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.*;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Re-applies a themed component's style when OEM code resets it (updateUI, LAF refresh, model or
+ * renderer swaps), instead of blind follow-up sweeps.
+ * - One listener instance is shared by every themed component; only background, foreground, opaque,
+ *   cellRenderer and UI changes count.
+ * - Changes made while muted (the painter's own sweeps and setters) are ignored, so styling a
+ *   component never schedules it again.
+ * - Changed components are queued (once each, in order) and restyled at most once per frame, at
+ *   most {@link #MAX_PER_FRAME} per frame; the rest waits for the next frame.
+ * The restyle callback decides whether a component is still worth healing. EDT only; a change
+ * reported on another thread is handed to the EDT first.
+ */
+final class StyleHealer implements PropertyChangeListener {
+
+    static final int MAX_PER_FRAME = 256;
+    private static final int FRAME_MS = 16;
+    private static final Set<String> WATCHED = Set.of("background", "foreground", "opaque", "cellRenderer", "UI");
+
+    private final Consumer<Component> restyle;
+    private final Set<Component> pending = new LinkedHashSet<>(); // Components use identity equals
+    private final Timer frame;
+    private int muted;
+
+    StyleHealer(Consumer<Component> restyle) {
+        this.restyle = restyle;
+        this.frame = new Timer(FRAME_MS, e -> flush());
+        frame.setRepeats(false);
+    }
+
+    /** Ignores property changes until the matching {@link #unmute()}; nests. */
+    void mute() {
+        muted++;
+    }
+
+    void unmute() {
+        muted--;
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /** Drops everything queued (e.g. when going light). */
+    void clear() {
+        pending.clear();
+        frame.stop();
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent e) {
+        String name = e.getPropertyName();
+        if (name == null || !WATCHED.contains(name) || !(e.getSource() instanceof Component c)) return;
+        if (!EventQueue.isDispatchThread()) {
+            // never one of our own (muted) changes: the painter only styles on the EDT
+            SwingUtilities.invokeLater(() -> propertyChange(e));
+            return;
+        }
+        if (muted > 0) return;
+        if (pending.add(c) && !frame.isRunning()) frame.start();
+    }
+
+    // One frame's worth of the queue
+    private void flush() {
+        muted++;
+        try {
+            Iterator<Component> it = pending.iterator();
+            for (int n = 0; n < MAX_PER_FRAME && it.hasNext(); n++) {
+                Component c = it.next();
+                it.remove();
+                restyle.accept(c);
+            }
+        } finally {
+            muted--;
+            if (!pending.isEmpty()) frame.restart();
+        }
+    }
+}
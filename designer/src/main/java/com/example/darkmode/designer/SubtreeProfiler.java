@@ -0,0 +1,109 @@
+package com.example.darkmode.designer;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diagnostic per-subtree cost profile for {@link DarkPainter}'s sweep.
+ * - Aggregates inclusive time and visit counts per component path (class-name chain from the window).
+ * - Exports folded stacks ({@code Frame;Panel;JTable 1234}, self time in µs) for flame graph tools.
+ * - Prints the top-N most expensive subtrees by inclusive time.
+ * Only used while profiling is switched on; the sweep pays nothing otherwise. EDT only.
+ */
+final class SubtreeProfiler {
+
+    private static final class Node {
+        final String name;
+        final Node parent;
+        final Map<Class<?>, Node> children = new HashMap<>(4);
+        long nanos;   // inclusive
+        long visits;
+
+        Node(String name, Node parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        long selfNanos() {
+            long self = nanos;
+            for (Node ch : children.values()) self -= ch.nanos;
+            return Math.max(0, self);
+        }
+
+        String path() {
+            return parent == null || parent.parent == null ? name : parent.path() + ";" + name;
+        }
+    }
+
+    private final Node root = new Node("", null);
+    private Node current = root;
+    private final long[] starts = new long[512];
+    private int depth;
+
+    void enter(Component c) {
+        Class<?> k = c.getClass();
+        Node n = current.children.get(k);
+        if (n == null) {
+            n = new Node(shortName(k), current);
+            current.children.put(k, n);
+        }
+        n.visits++;
+        current = n;
+        if (depth < starts.length) starts[depth] = System.nanoTime();
+        depth++;
+    }
+
+    void exit() {
+        depth--;
+        if (depth < starts.length) current.nanos += System.nanoTime() - starts[depth];
+        current = current.parent;
+    }
+
+    /** Writes one folded-stack line per path: {@code A;B;C <self µs>}. */
+    void writeFolded(Appendable out) throws IOException {
+        List<Node> all = new ArrayList<>();
+        collect(root, all);
+        for (Node n : all) {
+            long us = n.selfNanos() / 1_000;
+            if (us > 0) out.append(n.path()).append(' ').append(Long.toString(us)).append('\n');
+        }
+    }
+
+    /** Human-readable top-N subtrees by inclusive time. */
+    String report(int topN) {
+        List<Node> all = new ArrayList<>();
+        collect(root, all);
+        all.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+        StringBuilder sb = new StringBuilder("Dark painter subtree profile (top ").append(topN).append(")\n");
+        sb.append(String.format("%10s %10s %8s  %s%n", "incl ms", "self ms", "visits", "path"));
+        for (int i = 0; i < Math.min(topN, all.size()); i++) {
+            Node n = all.get(i);
+            sb.append(String.format("%10.2f %10.2f %8d  %s%n",
+                    n.nanos / 1e6, n.selfNanos() / 1e6, n.visits, n.path()));
+        }
+        return sb.toString();
+    }
+
+    void reset() {
+        root.children.clear();
+        current = root;
+        depth = 0;
+    }
+
+    private static void collect(Node n, List<Node> out) {
+        for (Node ch : n.children.values()) {
+            out.add(ch);
+            collect(ch, out);
+        }
+    }
+
+    // Class name without package, keeping $Inner / $1 parts (simple names of anonymous classes are empty)
+    private static String shortName(Class<?> k) {
+        String n = k.getName();
+        return n.substring(n.lastIndexOf('.') + 1);
+    }
+}
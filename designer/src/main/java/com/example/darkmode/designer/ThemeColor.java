@@ -0,0 +1,44 @@
+package com.example.darkmode.designer;
+
+import javax.swing.plaf.UIResource;
+import java.awt.*;
+
+/**
+ * A shared, mutable theme-token color.
+ * Components hold a reference to the token itself (not a copy of its value), so swapping the active
+ * {@link Palette} only rewrites the token values; a repaint then picks up the new colors without
+ * touching any component. Graphics, renderers and borders all read colors through {@link #getRGB()}.
+ * Marked {@link UIResource} so a look-and-feel refresh is free to replace it, like any LAF default.
+ * Note: the value (and hashCode) changes with the palette, so tokens are not suitable as hash keys.
+ */
+final class ThemeColor extends Color implements UIResource {
+
+    private final String name;
+    private volatile int argb;
+
+    ThemeColor(String name, int rgb) {
+        super(rgb);
+        this.name = name;
+        this.argb = 0xff000000 | rgb;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void set(int rgb) {
+        this.argb = 0xff000000 | rgb;
+    }
+
+    @Override public int getRGB()   { return argb; }
+    @Override public int getRed()   { return (argb >> 16) & 0xff; }
+    @Override public int getGreen() { return (argb >> 8) & 0xff; }
+    @Override public int getBlue()  { return argb & 0xff; }
+    @Override public int getAlpha() { return (argb >>> 24) & 0xff; }
+    @Override public int hashCode() { return argb; }
+
+    @Override
+    public String toString() {
+        return "ThemeColor[" + name + "=#" + Integer.toHexString(argb & 0xffffff) + "]";
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.darkmode.designer;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events for the painter's work, so a recording of a slow Designer shows
+ * whether theming lines up with reported EDT stalls.
+ * - All events are duration events with a threshold; when JFR is off (or below threshold)
+ *   {@code shouldCommit()} is false and nothing is recorded (the event object is scalar-replaced).
+ * - Enable with e.g. {@code jcmd <pid> JFR.start settings=profile} or a custom .jfc.
+ */
+final class ThemeEvents {
+
+    private static final String CATEGORY = "Designer Dark Mode";
+
+    private ThemeEvents() {}
+
+    @Name("com.example.darkmode.ThemePass")
+    @Label("Theme Pass")
+    @Description("Full painter sweep over one window")
+    @Category(CATEGORY)
+    @Threshold("1 ms")
+    static final class Pass extends Event {
+        @Label("Window") String window;
+        @Label("Components") int components;
+    }
+
+    @Name("com.example.darkmode.DynamicAdd")
+    @Label("Dynamic Add")
+    @Description("Subtree themed after being added to a live container, or on request (themeSubtree)")
+    @Category(CATEGORY)
+    @Threshold("1 ms")
+    static final class DynamicAdd extends Event {
+        @Label("Child") String child;
+        @Label("Components") int components;
+        @Label("Priority") String priority;
+    }
+
+    @Name("com.example.darkmode.TableHook")
+    @Label("Table Hook")
+    @Description("Property Editor / Tag Browser table renderers and listeners installed")
+    @Category(CATEGORY)
+    @Threshold("0 ms")
+    static final class TableHook extends Event {
+        @Label("Region") String region;
+        @Label("Table") String table;
+        @Label("Columns") int columns;
+    }
+
+    @Name("com.example.darkmode.ConsoleRestyle")
+    @Label("Console Restyle")
+    @Description("Character attributes applied to the Output Console document")
+    @Category(CATEGORY)
+    @Threshold("1 ms")
+    static final class ConsoleRestyle extends Event {
+        @Label("Kind") String kind;
+        @Label("Range Length") int rangeLength;
+    }
+
+    @Name("com.example.darkmode.IconAnalysis")
+    @Label("Icon Analysis")
+    @Description("Icon rasterized to measure its brightness")
+    @Category(CATEGORY)
+    @Threshold("0 ms")
+    static final class IconAnalysis extends Event {
+        @Label("Width") int width;
+        @Label("Height") int height;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.darkmode.designer;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * One user's dark-mode settings. Immutable; use the {@code with*} copies to change a value.
+ *
+ * @param darkMode        dark mode on/off
+ * @param palette         active dark palette variant
+ * @param engine          theming engine
+ * @param consoleMaxLines console line cap (0 = unbounded, -1 = not set: keep -Ddarkmode.console.maxLines)
+ * @param consoleMaxChars console character cap (0 = unbounded, -1 = not set: keep -Ddarkmode.console.maxChars)
+ * @param exclusions      excluded window classes / region roots, in the order they were added
+ */
+record ThemeProfile(boolean darkMode, Palette palette, Engine engine,
+                    int consoleMaxLines, int consoleMaxChars, Set<String> exclusions) {
+
+    /**
+     * How dark mode is applied.
+     * - SWEEP: the painter styles every component (DarkPainter);
+     * - PAINT_TIME: colors are remapped while drawing, nothing is styled (PaintTimeEngine).
+     */
+    enum Engine { SWEEP, PAINT_TIME }
+
+    static final ThemeProfile DEFAULT = new ThemeProfile(false, Palette.DARK, Engine.SWEEP, -1, -1, Set.of());
+
+    ThemeProfile {
+        exclusions = Collections.unmodifiableSet(new LinkedHashSet<>(exclusions));
+    }
+
+    ThemeProfile withDarkMode(boolean on) {
+        return new ThemeProfile(on, palette, engine, consoleMaxLines, consoleMaxChars, exclusions);
+    }
+
+    ThemeProfile withPalette(Palette p) {
+        return new ThemeProfile(darkMode, p, engine, consoleMaxLines, consoleMaxChars, exclusions);
+    }
+
+    ThemeProfile withEngine(Engine e) {
+        return new ThemeProfile(darkMode, palette, e, consoleMaxLines, consoleMaxChars, exclusions);
+    }
+
+    ThemeProfile withConsoleLimit(int maxLines, int maxChars) {
+        return new ThemeProfile(darkMode, palette, engine, maxLines, maxChars, exclusions);
+    }
+
+    ThemeProfile withExclusions(Set<String> ex) {
+        return new ThemeProfile(darkMode, palette, engine, consoleMaxLines, consoleMaxChars, ex);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * The painter's EDT work queue of subtree theming requests ({@link DarkPainter#themeSubtree}).
+ * - URGENT runs right away when submitted on the EDT, otherwise first thing on the next EDT turn.
+ *   NORMAL runs on the next EDT turn. BACKGROUND jobs start one after another until
+ *   {@link #SLICE_NANOS} have passed, then the rest waits for the next EDT turn, so input and paint
+ *   events queued in between are not held up by a backlog. A job is never split: one large subtree
+ *   still runs to completion in its turn. Anything more urgent that arrives in the meantime runs
+ *   before the rest of the background work.
+ * - Requests are merged by subtree:
+ *   - a request for a queued component, or for a descendant of one queued at the same or a more
+ *     urgent priority, gets that job's future (priority raised if needed);
+ *   - queued descendants that are no more urgent than a new request are folded into it.
+ * - A job's future completes on the EDT once its subtree is themed, or exceptionally if theming failed.
+ * EDT only (DarkPainter hops there for callers on other threads).
+ */
+final class ThemeQueue {
+
+    static final long SLICE_NANOS = 8_000_000L; // background jobs are started for this long per EDT turn
+
+    private static final class Job {
+        final Component root;
+        DarkPainter.Priority priority;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Job(Component root, DarkPainter.Priority priority) {
+            this.root = root;
+            this.priority = priority;
+        }
+    }
+
+    // root -> job, in submission order (Components use identity equals)
+    private final Map<Component, Job> jobs = new LinkedHashMap<>();
+    private final BiConsumer<Component, DarkPainter.Priority> work;
+    private boolean scheduled;
+
+    ThemeQueue(BiConsumer<Component, DarkPainter.Priority> work) {
+        this.work = work;
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    CompletableFuture<Void> submit(Component c, DarkPainter.Priority priority) {
+        Job same = jobs.get(c);
+        if (same != null) {
+            if (priority.compareTo(same.priority) < 0) same.priority = priority;
+            return runOrSchedule(same);
+        }
+        for (Container a = c.getParent(); a != null; a = a.getParent()) {
+            Job covering = jobs.get(a);
+            if (covering != null && covering.priority.compareTo(priority) <= 0) return covering.done;
+        }
+        Job job = new Job(c, priority);
+        absorbDescendants(job);
+        jobs.put(c, job);
+        return runOrSchedule(job);
+    }
+
+    /** Drops every queued job; their futures complete normally (nothing left to theme, e.g. going light). */
+    void clear() {
+        List<Job> all = new ArrayList<>(jobs.values());
+        jobs.clear();
+        for (Job j : all) j.done.complete(null);
+    }
+
+    // ===== Internals =====
+    private CompletableFuture<Void> runOrSchedule(Job job) {
+        if (job.priority == DarkPainter.Priority.URGENT && EventQueue.isDispatchThread()) {
+            jobs.remove(job.root);
+            run(job);
+        } else if (!scheduled) {
+            scheduled = true;
+            SwingUtilities.invokeLater(this::drain);
+        }
+        return job.done;
+    }
+
+    // Queued jobs under job.root that are no more urgent complete together with it
+    private void absorbDescendants(Job job) {
+        if (!(job.root instanceof Container root)) return;
+        for (Iterator<Job> it = jobs.values().iterator(); it.hasNext(); ) {
+            Job j = it.next();
+            if (j.priority.compareTo(job.priority) >= 0 && SwingUtilities.isDescendingFrom(j.root, root)) {
+                it.remove();
+                job.done.whenComplete((v, e) -> {
+                    if (e == null) j.done.complete(null);
+                    else j.done.completeExceptionally(e);
+                });
+            }
+        }
+    }
+
+    private void drain() {
+        scheduled = false;
+        try {
+            // everything but background work: urgent first, each in submission order
+            for (Job j : take(DarkPainter.Priority.URGENT, Long.MAX_VALUE)) run(j);
+            for (Job j : take(DarkPainter.Priority.NORMAL, Long.MAX_VALUE)) run(j);
+            long deadline = System.nanoTime() + SLICE_NANOS;
+            while (System.nanoTime() < deadline) {
+                List<Job> next = take(DarkPainter.Priority.BACKGROUND, 1);
+                if (next.isEmpty()) break;
+                run(next.get(0));
+            }
+        } finally {
+            if (!jobs.isEmpty() && !scheduled) {
+                scheduled = true;
+                SwingUtilities.invokeLater(this::drain); // behind whatever arrived meanwhile
+            }
+        }
+    }
+
+    // Removes and returns up to max queued jobs at {@code upTo} priority or more urgent
+    private List<Job> take(DarkPainter.Priority upTo, long max) {
+        List<Job> out = new ArrayList<>();
+        for (Iterator<Job> it = jobs.values().iterator(); it.hasNext() && out.size() < max; ) {
+            Job j = it.next();
+            if (j.priority.compareTo(upTo) <= 0) {
+                it.remove();
+                out.add(j);
+            }
+        }
+        return out;
+    }
+
+    private void run(Job job) {
+        try {
+            work.accept(job.root, job.priority);
+            job.done.complete(null);
+        } catch (RuntimeException e) {
+            job.done.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.darkmode.designer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.UnaryOperator;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind settings store with per-user profiles:
+ * - Profiles live under {@code <package node>/profiles/<user>} in the user Preferences tree.
+ * - {@link #open} loads asynchronously; changes made before the load completes are replayed on top
+ *   of the stored profile.
+ * - {@link #update} changes the in-memory profile and schedules a debounced write on a background
+ *   thread, so UI interactions never touch the backing store (which can block on some platforms).
+ * The legacy single "darkModeEnabled" key is migrated into a profile the first time it's loaded.
+ */
+final class ThemeSettings {
+
+    private static final String LEGACY_KEY = "darkModeEnabled";
+    private static final long WRITE_DELAY_MS = 500;
+
+    private static final ScheduledExecutorService IO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "dark-settings-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Preferences root;
+    private final String user;
+    private final CompletableFuture<ThemeProfile> loaded;
+    private volatile ThemeProfile profile = ThemeProfile.DEFAULT;
+    // guarded by this
+    private ScheduledFuture<?> pendingWrite;
+    private boolean isLoaded;
+    private final List<UnaryOperator<ThemeProfile>> earlyChanges = new ArrayList<>();
+
+    private ThemeSettings(Preferences root, String user) {
+        this.root = root;
+        this.user = user;
+        this.loaded = CompletableFuture.supplyAsync(this::load, IO);
+    }
+
+    /** Starts loading the profile for {@code user} in the background. */
+    static ThemeSettings open(Class<?> owner, String user) {
+        String name = (user == null || user.isBlank()) ? "default" : user;
+        return new ThemeSettings(Preferences.userNodeForPackage(owner), name);
+    }
+
+    /** Completes (off the EDT) once the stored profile is in memory. */
+    CompletableFuture<ThemeProfile> loaded() {
+        return loaded;
+    }
+
+    /** Applies {@code change} in memory and schedules a debounced write-behind. */
+    void update(UnaryOperator<ThemeProfile> change) {
+        synchronized (this) {
+            profile = change.apply(profile);
+            // replayed on top of the stored profile once the load completes
+            if (!isLoaded) earlyChanges.add(change);
+            if (pendingWrite != null) pendingWrite.cancel(false);
+            // writes queue behind the initial load on the same thread, so they never race it
+            pendingWrite = IO.schedule(this::store, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Writes any pending change now (on the IO thread) and waits briefly for it; for shutdown. */
+    void flush() {
+        ScheduledFuture<?> p;
+        synchronized (this) {
+            p = pendingWrite;
+            pendingWrite = null;
+        }
+        if (p == null) return;
+        try {
+            if (p.cancel(false)) IO.submit(this::store).get(2, TimeUnit.SECONDS);
+            else p.get(2, TimeUnit.SECONDS); // already writing (or written): wait for it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | CancellationException ignored) {
+            // best effort on shutdown
+        }
+    }
+
+    // ===== IO thread =====
+    private ThemeProfile load() {
+        try {
+            Preferences node = root.node("profiles");
+            ThemeProfile p;
+            if (node.nodeExists(user)) {
+                Preferences n = node.node(user);
+                p = new ThemeProfile(
+                        n.getBoolean("darkMode", false),
+                        parse(Palette.class, n.get("palette", null), Palette.DARK),
+                        parse(ThemeProfile.Engine.class, n.get("engine", null), ThemeProfile.Engine.SWEEP),
+                        n.getInt("consoleMaxLines", -1), // -1: not stored, keep the -D default
+                        n.getInt("consoleMaxChars", -1),
+                        Arrays.stream(n.get("exclusions", "").split("\n"))
+                                .map(String::trim).filter(s -> !s.isEmpty())
+                                .collect(Collectors.toCollection(LinkedHashSet::new)));
+            } else {
+                p = ThemeProfile.DEFAULT.withDarkMode(root.getBoolean(LEGACY_KEY, false));
+            }
+            return loadedAs(p);
+        } catch (BackingStoreException | IllegalStateException e) {
+            return loadedAs(ThemeProfile.DEFAULT);
+        }
+    }
+
+    private synchronized ThemeProfile loadedAs(ThemeProfile stored) {
+        ThemeProfile p = stored;
+        for (UnaryOperator<ThemeProfile> change : earlyChanges) p = change.apply(p);
+        earlyChanges.clear();
+        isLoaded = true;
+        profile = p;
+        return p;
+    }
+
+    private void store() {
+        ThemeProfile p = profile;
+        try {
+            Preferences n = root.node("profiles").node(user);
+            n.putBoolean("darkMode", p.darkMode());
+            n.put("palette", p.palette().name());
+            n.put("engine", p.engine().name());
+            putCap(n, "consoleMaxLines", p.consoleMaxLines());
+            putCap(n, "consoleMaxChars", p.consoleMaxChars());
+            n.put("exclusions", String.join("\n", p.exclusions()));
+            n.flush();
+        } catch (BackingStoreException | IllegalStateException ignored) {
+            // keep the in-memory value; the next update retries the write
+        }
+    }
+
+    // Only caps that were actually set are stored, so unset ones keep following the -D defaults
+    private static void putCap(Preferences n, String key, int cap) {
+        if (cap >= 0) n.putInt(key, cap);
+        else n.remove(key);
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String name, E fallback) {
+        if (name == null) return fallback;
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.darkmode.designer;
+
+/**
+ * The painter's shared theme tokens. Values come from the active {@link Palette};
+ * {@link #apply(Palette)} swaps them in place without visiting any component.
+ */
+final class ThemeTokens {
+
+    static final ThemeColor GRAY_BG        = new ThemeColor("GRAY_BG",        0x3C3F41);
+    static final ThemeColor GRAY_BG_ALT    = new ThemeColor("GRAY_BG_ALT",    0x293134);
+    static final ThemeColor DARK_GRAY      = new ThemeColor("DARK_GRAY",      0x606060);
+    static final ThemeColor TEXT           = new ThemeColor("TEXT",           0xFFFFFF);
+    static final ThemeColor TEXT_ON_LIGHT  = new ThemeColor("TEXT_ON_LIGHT",  0x000000);
+    static final ThemeColor LIGHT_GRAY     = new ThemeColor("LIGHT_GRAY",     0xB4B4B4);
+    static final ThemeColor LIGHT2_GRAY    = new ThemeColor("LIGHT2_GRAY",    0xF1F1F1);
+    static final ThemeColor MENU_ITEM_BG   = new ThemeColor("MENU_ITEM_BG",   0x505960);
+    static final ThemeColor PE_ROW_BG      = new ThemeColor("PE_ROW_BG",      0x3A3C3E);
+    static final ThemeColor PE_ROW_ALT_BG  = new ThemeColor("PE_ROW_ALT_BG",  0x343638);
+    static final ThemeColor PE_HOVER_BG    = new ThemeColor("PE_HOVER_BG",    0x46494C);
+    static final ThemeColor PE_SELECT_BG   = new ThemeColor("PE_SELECT_BG",   0x4B6EAF);
+    static final ThemeColor SEL_BLUE       = new ThemeColor("SEL_BLUE",       0x48A9E6);
+    static final ThemeColor SELECTION_BG   = new ThemeColor("SELECTION_BG",   0x4B6EAF);
+    static final ThemeColor GRID           = new ThemeColor("GRID",           0x646464);
+    static final ThemeColor PE_GRID        = new ThemeColor("PE_GRID",        0x5F5F5F);
+    static final ThemeColor TEXT_SELECTION = new ThemeColor("TEXT_SELECTION", 0x607D8B);
+    // Code editors (shared syntax scheme, see CodeEditorTheme)
+    static final ThemeColor CODE_BG        = new ThemeColor("CODE_BG",        0x2B2B2B);
+    static final ThemeColor CODE_LINE      = new ThemeColor("CODE_LINE",      0x323232);
+    static final ThemeColor CODE_TEXT      = new ThemeColor("CODE_TEXT",      0xA9B7C6);
+    static final ThemeColor CODE_COMMENT   = new ThemeColor("CODE_COMMENT",   0x808080);
+    static final ThemeColor CODE_KEYWORD   = new ThemeColor("CODE_KEYWORD",   0xCC7832);
+    static final ThemeColor CODE_STRING    = new ThemeColor("CODE_STRING",    0x6A8759);
+    static final ThemeColor CODE_NUMBER    = new ThemeColor("CODE_NUMBER",    0x6897BB);
+    static final ThemeColor CODE_FUNCTION  = new ThemeColor("CODE_FUNCTION",  0xFFC66D);
+    // Output Console log highlighting (see ConsoleHighlighter)
+    static final ThemeColor LOG_ERROR       = new ThemeColor("LOG_ERROR",       0xFF8080);
+    static final ThemeColor LOG_ERROR_LEVEL = new ThemeColor("LOG_ERROR_LEVEL", 0xFF6464);
+    static final ThemeColor LOG_WARN        = new ThemeColor("LOG_WARN",        0xE6BE64);
+    static final ThemeColor LOG_WARN_LEVEL  = new ThemeColor("LOG_WARN_LEVEL",  0xF0B43C);
+    static final ThemeColor LOG_INFO        = new ThemeColor("LOG_INFO",        0x6EAAE6);
+    static final ThemeColor LOG_MUTED       = new ThemeColor("LOG_MUTED",       0x969696);
+    static final ThemeColor LOG_LOGGER      = new ThemeColor("LOG_LOGGER",      0x78C8BE);
+
+    /** Token order used by {@link Palette}'s value columns. */
+    static final ThemeColor[] ALL = {
+            GRAY_BG, GRAY_BG_ALT, DARK_GRAY, TEXT, TEXT_ON_LIGHT, LIGHT_GRAY, LIGHT2_GRAY, MENU_ITEM_BG,
+            PE_ROW_BG, PE_ROW_ALT_BG, PE_HOVER_BG, PE_SELECT_BG, SEL_BLUE, SELECTION_BG, GRID, PE_GRID, TEXT_SELECTION,
+            CODE_BG, CODE_LINE, CODE_TEXT, CODE_COMMENT, CODE_KEYWORD, CODE_STRING, CODE_NUMBER, CODE_FUNCTION,
+            LOG_ERROR, LOG_ERROR_LEVEL, LOG_WARN, LOG_WARN_LEVEL, LOG_INFO, LOG_MUTED, LOG_LOGGER
+    };
+
+    private static volatile Palette active = Palette.DARK;
+
+    private ThemeTokens() {}
+
+    static Palette active() {
+        return active;
+    }
+
+    static void apply(Palette p) {
+        for (int i = 0; i < ALL.length; i++) ALL[i].set(p.rgb(i));
+        active = p;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import javax.swing.plaf.UIResource;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of real component-tree shapes, for offline painter benchmarks (ShapeReplay, test tree).
+ * Per component: class (with its superclass chain down to javax.swing/java.awt), visibility, opacity,
+ * explicitly set bg/fg, table/tree/list sizes, children. No text, icons or other user data.
+ * Format (all counts and ids are unsigned LEB128 varints):
+ * - header: magic "DMTS", version byte, window count, then one node per window;
+ * - node: class ref, flags, [bg ARGB], [fg ARGB], [size a, size b], child count, children;
+ * - class ref: an id; the first occurrence is followed by the name (UTF) and a platform flag, and a
+ *   non-platform class by its superclass ref. Ids are assigned in order of first occurrence.
+ * Capturing walks the tree on the EDT; writing the bytes out is up to the caller.
+ */
+final class TreeShapes {
+
+    private static final int MAGIC = 0x444D5453; // "DMTS"
+    private static final int VERSION = 1;
+
+    // ===== Node flags =====
+    static final int OPAQUE  = 1;
+    static final int VISIBLE = 1 << 1;
+    static final int BG      = 1 << 2;  // background explicitly set
+    static final int BG_UI   = 1 << 3;  // ... and a UIResource (LAF default)
+    static final int FG      = 1 << 4;
+    static final int FG_UI   = 1 << 5;
+    static final int SIZED   = 1 << 6;  // table rows/columns, tree rows or list size follow
+
+    /** A recorded class; {@code superclass} is null for javax.swing / java.awt classes. */
+    record ClassSpec(String name, ClassSpec superclass) {
+        boolean platform() {
+            return superclass == null;
+        }
+    }
+
+    /** One recorded component; {@code sizeA}/{@code sizeB} are rows/columns (table), rows (tree) or items (list, combo). */
+    record Node(ClassSpec type, int flags, int bg, int fg, int sizeA, int sizeB, List<Node> children) {
+        boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        int count() {
+            int n = 1;
+            for (Node ch : children) n += ch.count();
+            return n;
+        }
+    }
+
+    private TreeShapes() {}
+
+    // ===== Capture =====
+    /** Snapshot of every displayable window. EDT only. */
+    static byte[] captureWindows() throws IOException {
+        List<Window> windows = new ArrayList<>();
+        for (Window w : Window.getWindows()) {
+            if (w.isDisplayable()) windows.add(w);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        write(windows, bytes);
+        return bytes.toByteArray();
+    }
+
+    static void write(List<? extends Component> roots, OutputStream out) throws IOException {
+        DataOutputStream d = new DataOutputStream(out);
+        d.writeInt(MAGIC);
+        d.writeByte(VERSION);
+        Writer w = new Writer(d);
+        w.varint(roots.size());
+        for (Component root : roots) w.node(root);
+        d.flush();
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<Class<?>, Integer> ids = new HashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void node(Component c) throws IOException {
+            classRef(c.getClass());
+            int flags = (c.isOpaque() ? OPAQUE : 0) | (c.isVisible() ? VISIBLE : 0);
+            Color bg = c.isBackgroundSet() ? c.getBackground() : null;
+            Color fg = c.isForegroundSet() ? c.getForeground() : null;
+            if (bg != null) flags |= BG | (bg instanceof UIResource ? BG_UI : 0);
+            if (fg != null) flags |= FG | (fg instanceof UIResource ? FG_UI : 0);
+            int a = -1, b = 0;
+            if (c instanceof JTable t) { a = t.getRowCount(); b = t.getColumnCount(); }
+            else if (c instanceof JTree t) a = t.getRowCount();
+            else if (c instanceof JList<?> l) a = l.getModel().getSize();
+            else if (c instanceof JComboBox<?> cb) a = cb.getItemCount();
+            if (a >= 0) flags |= SIZED;
+
+            varint(flags);
+            if (bg != null) out.writeInt(bg.getRGB());
+            if (fg != null) out.writeInt(fg.getRGB());
+            if (a >= 0) { varint(a); varint(b); }
+            Component[] children = c instanceof Container ct ? ct.getComponents() : new Component[0];
+            varint(children.length);
+            for (Component ch : children) node(ch);
+        }
+
+        void classRef(Class<?> k) throws IOException {
+            Integer id = ids.get(k);
+            if (id != null) {
+                varint(id);
+                return;
+            }
+            id = ids.size();
+            ids.put(k, id);
+            varint(id);
+            out.writeUTF(k.getName());
+            boolean platform = isPlatform(k);
+            out.writeBoolean(platform);
+            if (!platform) classRef(k.getSuperclass());
+        }
+
+        void varint(int v) throws IOException {
+            while ((v & ~0x7F) != 0) {
+                out.writeByte((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.writeByte(v);
+        }
+    }
+
+    // ===== Read =====
+    /** The recorded windows, in capture order. */
+    static List<Node> read(InputStream in) throws IOException {
+        DataInputStream d = new DataInputStream(in);
+        if (d.readInt() != MAGIC) throw new IOException("not a tree shape file");
+        int version = d.readUnsignedByte();
+        if (version != VERSION) throw new IOException("unsupported tree shape version " + version);
+        Reader r = new Reader(d);
+        int n = r.varint();
+        List<Node> roots = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) roots.add(r.node());
+        return roots;
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final List<ClassSpec> classes = new ArrayList<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        Node node() throws IOException {
+            ClassSpec type = classRef();
+            int flags = varint();
+            int bg = (flags & BG) != 0 ? in.readInt() : 0;
+            int fg = (flags & FG) != 0 ? in.readInt() : 0;
+            int a = 0, b = 0;
+            if ((flags & SIZED) != 0) { a = varint(); b = varint(); }
+            int n = varint();
+            List<Node> children = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) children.add(node());
+            return new Node(type, flags, bg, fg, a, b, children);
+        }
+
+        ClassSpec classRef() throws IOException {
+            int id = varint();
+            if (id < classes.size()) return classes.get(id);
+            if (id != classes.size()) throw new IOException("bad class id " + id);
+            classes.add(null); // reserved: the superclass chain takes the next ids
+            String name = in.readUTF();
+            ClassSpec spec = new ClassSpec(name, in.readBoolean() ? null : classRef());
+            classes.set(id, spec);
+            return spec;
+        }
+
+        int varint() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+
+    // Where recording stops: the replay instantiates these directly
+    static boolean isPlatform(Class<?> k) {
+        String n = k.getName();
+        return n.startsWith("javax.swing.") || n.startsWith("java.awt.") || k.getSuperclass() == null;
+    }
+}
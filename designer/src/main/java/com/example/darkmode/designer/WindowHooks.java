@@ -0,0 +1,107 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Window "shown" notifications, early enough that a new window's first frame is already themed.
+ * - A window that gets its peer on the EDT (addNotify, from pack or the first setVisible) is
+ *   reported right then, synchronously and before the peer is shown. That comes from a toolkit HIERARCHY_EVENT_MASK
+ *   listener; it sees every hierarchy change, and rejects all but a Window's own displayability
+ *   change with a few field reads. It runs under the tree lock, inside addNotify.
+ * - Reported windows, and the ones the caller enumerates ({@link #hook}), also get windowOpened /
+ *   componentShown: queued events, dispatched before the paint queued behind them, for re-shows in
+ *   a newer theme generation.
+ * - A window made displayable off the EDT is reported on the next EDT turn; if it is shown before
+ *   that, its componentShown is the fallback.
+ * The callback may see a window more than once and decides itself whether there is work. EDT only
+ * (the toolkit listener hops there).
+ */
+final class WindowHooks extends WindowAdapter implements ComponentListener, AWTEventListener {
+
+    private final PaintCounters counters;
+    private final Consumer<Window> shown;
+    private final Map<Window, Boolean> hooked = new WeakHashMap<>();
+    private boolean started;
+
+    WindowHooks(PaintCounters counters, Consumer<Window> shown) {
+        this.counters = counters;
+        this.shown = shown;
+    }
+
+    /** Starts looking for new windows; the ones that exist now are hooked by the caller ({@link #hook}). */
+    void start() {
+        if (started) return;
+        started = true;
+        Toolkit.getDefaultToolkit().addAWTEventListener(this, AWTEvent.HIERARCHY_EVENT_MASK);
+    }
+
+    /** Stops looking for new windows and unhooks every hooked one. */
+    void stop() {
+        if (!started) return;
+        started = false;
+        Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+        for (Window w : new ArrayList<>(hooked.keySet())) {
+            if (w == null) continue;
+            w.removeWindowListener(this);
+            w.removeComponentListener(this);
+            counters.listenerRemovals += 2;
+        }
+        hooked.clear();
+    }
+
+    /** Adds the listeners to {@code w}; true if it wasn't hooked before. */
+    boolean hook(Window w) {
+        if (hooked.containsKey(w)) return false;
+        w.addWindowListener(this);
+        w.addComponentListener(this);
+        hooked.put(w, Boolean.TRUE);
+        counters.listenerInstalls += 2;
+        return true;
+    }
+
+    int size() {
+        return hooked.size();
+    }
+
+    @Override public void windowOpened(WindowEvent e) {
+        shown.accept(e.getWindow());
+    }
+
+    @Override public void componentShown(ComponentEvent e) {
+        if (e.getComponent() instanceof Window w) shown.accept(w);
+    }
+    @Override public void componentResized(ComponentEvent e) {}
+    @Override public void componentMoved(ComponentEvent e) {}
+    @Override public void componentHidden(ComponentEvent e) {}
+
+    // A window just got its peer: hook it and report it before it is shown
+    @Override public void eventDispatched(AWTEvent e) {
+        if (e.getID() != HierarchyEvent.HIERARCHY_CHANGED) return;
+        HierarchyEvent he = (HierarchyEvent) e;
+        if ((he.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) == 0) return;
+        // children of the window get the same event, with the window as the changed component
+        if (!(he.getChanged() instanceof Window w) || he.getComponent() != w || !w.isDisplayable()) return;
+        if (EventQueue.isDispatchThread()) {
+            displayable(w);
+        } else {
+            SwingUtilities.invokeLater(() -> displayable(w)); // pack() off the EDT
+        }
+    }
+
+    private void displayable(Window w) {
+        if (!started || !w.isDisplayable()) return;
+        hook(w);
+        shown.accept(w);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.darkmode.designer.spi;
+
+/**
+ * Dark-mode color categories a component can be assigned to (same model as the built-in lists).
+ * - ABW: alternate dark background, white text
+ * - BW: dark gray background, white text
+ * - DGW: mid gray background, white text
+ * - LGB: light gray background, black text
+ * - LLGB: lightest gray background, black text
+ */
+public enum Category { ABW, BW, DGW, LGB, LLGB }
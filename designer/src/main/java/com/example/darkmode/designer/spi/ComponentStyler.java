@@ -0,0 +1,13 @@
+package com.example.darkmode.designer.spi;
+
+import java.awt.*;
+
+/**
+ * Custom styling hook, called on the EDT for every matching component the painter visits,
+ * after the category colors have been applied. Called in light mode too, so it can undo itself.
+ */
+@FunctionalInterface
+public interface ComponentStyler<T extends Component> {
+
+    void style(T component, boolean dark);
+}
@@ -0,0 +1,14 @@
+package com.example.darkmode.designer.spi;
+
+/**
+ * Entry point for other Designer modules that want their panels themed.
+ * Implementations are discovered with {@link java.util.ServiceLoader} when the dark mode module
+ * starts (list the class in {@code META-INF/services/com.example.darkmode.designer.spi.ThemeContribution}),
+ * or registered explicitly through {@code DarkPainter.install().register(...)}.
+ * {@link #contribute} runs once on the EDT; everything registered is compiled into the painter's
+ * per-class dispatch tables, so contributions don't add per-visit cost for unrelated components.
+ */
+public interface ThemeContribution {
+
+    void contribute(ThemeRegistry registry);
+}
@@ -0,0 +1,38 @@
+package com.example.darkmode.designer.spi;
+
+import java.awt.*;
+import java.util.function.Predicate;
+
+/**
+ * Rules a {@link ThemeContribution} can register. Class names follow the built-in lists:
+ * a simple name ("MyPanel"), an inner-class token ("MyEditor$Header") or a fully qualified name
+ * ("com.acme.MyPanel", matching that class only).
+ * Priorities decide between rules that match the same component: the highest wins, ties go to the
+ * rule registered first, built-in rules use {@link #BUILT_IN}.
+ */
+public interface ThemeRegistry {
+
+    /** Priority of the painter's own rules. */
+    int BUILT_IN = 0;
+
+    /** Components whose class matches one of {@code classNames} get {@code category}. */
+    void names(Category category, int priority, String... classNames);
+
+    /**
+     * Components of {@code type} anywhere below an instance of {@code rootClassName} (exact FQCN)
+     * get {@code category}. The innermost region wins; resolved during the sweep, not per ancestor walk.
+     */
+    void region(String rootClassName, Category category, int priority, Class<? extends Component> type);
+
+    /** Components of {@code type} that pass {@code test} get {@code category}. */
+    <T extends Component> void rule(String name, Category category, int priority, Class<T> type,
+                                    Predicate<? super T> test);
+
+    /**
+     * Runs {@code styler} on every component of {@code type}, optionally only below {@code rootClassName}
+     * (exact FQCN, at any depth, whatever regions nest in between; null = everywhere). Stylers run in
+     * ascending priority, so the highest priority has the last word.
+     */
+    <T extends Component> void styler(String rootClassName, Class<T> type, int priority,
+                                      ComponentStyler<? super T> styler);
+}
@@ -0,0 +1,117 @@
+package com.example.darkmode.designer;
+
+import com.example.darkmode.designer.spi.Category;
+import com.example.darkmode.designer.spi.ThemeRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stylers a contribution limits to a root class: they run on every matching component below that
+ * root, whether or not the root also has region rules and whatever regions nest in between, and
+ * nowhere else. The roots are test-only classes, so the other tests' trees never meet them.
+ */
+class ContributedStylerTest {
+
+    /** Root a styler is limited to, with no region rules of its own. */
+    static final class PluginPanel extends JPanel {}
+
+    /** Another module's region root, nested below PluginPanel. */
+    static final class OtherModulePanel extends JPanel {}
+
+    private static final List<String> styled = new ArrayList<>();
+
+    private final DarkPainter painter = DarkPainter.install();
+
+    @BeforeAll
+    static void register() throws Exception {
+        onEdt(() -> {
+            DarkPainter painter = DarkPainter.install();
+            painter.register(r -> r.styler(PluginPanel.class.getName(), JLabel.class, ThemeRegistry.BUILT_IN,
+                    (label, dark) -> { if (dark) styled.add(label.getText()); }));
+            painter.register(r -> r.region(OtherModulePanel.class.getName(), Category.ABW, ThemeRegistry.BUILT_IN,
+                    JLabel.class));
+            return null;
+        });
+    }
+
+    @AfterEach
+    void backToLight() throws Exception {
+        onEdt(() -> {
+            painter.setDarkMode(false);
+            styled.clear();
+            return null;
+        });
+    }
+
+    @Test
+    void rootScopedStylerRunsBelowItsRootOnly() throws Exception {
+        JComponent root = onEdt(ContributedStylerTest::tree);
+        onEdt(() -> {
+            painter.setDarkMode(true);
+            painter.paintTree(root);
+            return null;
+        });
+        assertEquals(List.of("inside", "nested region"), onEdt(() -> List.copyOf(styled)));
+    }
+
+    @Test
+    void rootScopedStylerRunsFromAnEntryPointBelowItsRoot() throws Exception {
+        JComponent root = onEdt(ContributedStylerTest::tree);
+        onEdt(() -> {
+            painter.setDarkMode(true);
+            painter.paintTree(labelNamed(root, "nested region"));
+            painter.paintTree(labelNamed(root, "outside"));
+            return null;
+        });
+        assertEquals(List.of("nested region"), onEdt(() -> List.copyOf(styled)));
+    }
+
+    // root > [PluginPanel > [JPanel > "inside", OtherModulePanel > "nested region"], "outside"]
+    private static JComponent tree() {
+        JPanel root = new JPanel();
+        PluginPanel plugin = new PluginPanel();
+        JPanel inner = new JPanel();
+        inner.add(new JLabel("inside"));
+        plugin.add(inner);
+        OtherModulePanel other = new OtherModulePanel();
+        other.add(new JLabel("nested region"));
+        plugin.add(other);
+        root.add(plugin);
+        root.add(new JLabel("outside"));
+        return root;
+    }
+
+    private static JLabel labelNamed(Container c, String text) {
+        for (Component child : c.getComponents()) {
+            if (child instanceof JLabel l && text.equals(l.getText())) return l;
+            if (child instanceof Container ct) {
+                JLabel l = labelNamed(ct, text);
+                if (l != null) return l;
+            }
+        }
+        return null;
+    }
+
+    private static <T> T onEdt(Supplier<T> work) throws Exception {
+        Object[] out = new Object[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> out[0] = work.get());
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception x) throw x;
+            if (e.getCause() instanceof Error x) throw x;
+            throw e;
+        }
+        @SuppressWarnings("unchecked") T t = (T) out[0];
+        return t;
+    }
+}
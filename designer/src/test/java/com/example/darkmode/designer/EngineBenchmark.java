@@ -0,0 +1,164 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Headless benchmark: sweep engine vs paint-time engine ({@link PaintTimeEngine}), per tree size.
+ * - toggle: time from "dark on" until the tree is ready to paint dark, averaged over repeated
+ *   on/off flips (sweep: one painter pass over every component; paint-time: inserting the
+ *   remapping layer above the root).
+ * - paint: full offscreen paint of the tree per frame (light baseline, swept dark, remapped dark).
+ * - scroll: paint cost of one {@link #SCROLL_STEP}px scroll step. Light and swept dark viewports blit,
+ *   so only the exposed strip is painted (the copyArea itself isn't timed); under the paint-time
+ *   layer a viewport can't blit and the whole viewport is repainted through the remapper.
+ * Run (test classes): java -Djava.awt.headless=true -cp build/classes/java/main:build/classes/java/test \
+ *      com.example.darkmode.designer.EngineBenchmark [rounds] [sizes...]
+ */
+final class EngineBenchmark {
+
+    private static final int W = 1400, H = 900, SCROLL_STEP = 24;
+
+    private EngineBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int[] sizes = args.length > 1 ? new int[args.length - 1] : new int[]{1_000, 5_000, 20_000};
+        for (int i = 1; i < args.length; i++) sizes[i - 1] = Integer.parseInt(args[i]);
+        SwingUtilities.invokeAndWait(() -> run(rounds, sizes));
+    }
+
+    private static void run(int rounds, int[] sizes) {
+        DarkPainter painter = DarkPainter.install();
+        double[][] r = new double[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) r[i] = measureRemap(painter, sizes[i], rounds);
+        System.out.printf("%8s %12s %12s %12s %12s %12s%n",
+                "comps", "sweep tgl ms", "remap tgl ms", "light paint", "sweep paint", "remap paint");
+        for (int i = 0; i < sizes.length; i++) {
+            double[] sweep = measureSweep(painter, sizes[i], rounds);
+            System.out.printf("%8d %12.3f %12.3f %12.2f %12.2f %12.2f%n",
+                    (int) r[i][0], sweep[0], r[i][1], r[i][2], sweep[1], r[i][3]);
+        }
+        System.out.printf("%n%8s %14s %14s%n", "comps", "blit step ms", "remap step ms");
+        for (int i = 0; i < sizes.length; i++) {
+            double[] scroll = measureScroll(painter, sizes[i], rounds);
+            System.out.printf("%8d %14.3f %14.3f%n", (int) r[i][0], scroll[0], scroll[1]);
+        }
+    }
+
+    // {components, toggle ms, light paint ms, remapped paint ms}
+    private static double[] measureRemap(DarkPainter painter, int n, int rounds) {
+        JComponent light = buildTree(n);
+        double lightPaint = paintMs(light, rounds);
+
+        // toggle = one layer (moving the root under it is an AWT walk, no styling)
+        JComponent plain = buildTree(n);
+        JPanel host = new JPanel(new BorderLayout());
+        host.add(plain);
+        PaintTimeEngine engine = painter.paintTimeEngine();
+        long nanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            JLayer<JComponent> layer = engine.insertLayer(host, plain);
+            nanos += System.nanoTime() - t0;
+            PaintTimeEngine.removeLayer(host, layer, plain);
+        }
+        JLayer<JComponent> layer = engine.insertLayer(host, plain);
+        layer.setSize(W, H);
+        plain.setBounds(0, 0, W, H);
+        return new double[]{count(light), nanos / 1e6 / rounds, lightPaint, paintMs(layer, rounds)};
+    }
+
+    // {toggle ms, swept paint ms}
+    private static double[] measureSweep(DarkPainter painter, int n, int rounds) {
+        // toggle = one full pass (then one light pass back, untimed)
+        JComponent swept = buildTree(n);
+        long nanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            painter.setDarkMode(true);
+            painter.paintTree(swept);
+            nanos += System.nanoTime() - t0;
+            painter.setDarkMode(false);
+            painter.paintTree(swept);
+        }
+        painter.setDarkMode(true);
+        painter.paintTree(swept);
+        double paint = paintMs(swept, rounds);
+        painter.setDarkMode(false);
+        return new double[]{nanos / 1e6 / rounds, paint};
+    }
+
+    // {blitted step ms (exposed strip), remapped step ms (whole viewport through the layer)}
+    private static double[] measureScroll(DarkPainter painter, int n, int rounds) {
+        JComponent view = buildTree(n);
+        double blit = paintMs(view, new Rectangle(0, H - SCROLL_STEP, W, SCROLL_STEP), rounds);
+
+        JPanel host = new JPanel(new BorderLayout());
+        host.add(view);
+        JLayer<JComponent> layer = painter.paintTimeEngine().insertLayer(host, view);
+        layer.setSize(W, H);
+        view.setBounds(0, 0, W, H);
+        return new double[]{blit, paintMs(layer, new Rectangle(0, 0, W, H), rounds)};
+    }
+
+    // ===== Synthetic tree (n components, nested 3 deep) =====
+    private static JComponent buildTree(int n) {
+        JPanel root = new JPanel(new GridLayout(0, 10));
+        root.setSize(W, H);
+        int made = 1;
+        while (made < n) {
+            JPanel group = new JPanel(new GridLayout(0, 2));
+            made++;
+            for (int i = 0; i < 8 && made < n; i++, made++) {
+                group.add(switch (made % 4) {
+                    case 0 -> new JLabel("Label " + made);
+                    case 1 -> new JTextField("Text " + made);
+                    case 2 -> new JButton("Button " + made);
+                    default -> new JCheckBox("Check " + made);
+                });
+            }
+            root.add(group);
+        }
+        layoutDeep(root);
+        return root;
+    }
+
+    private static void layoutDeep(Component c) {
+        if (c instanceof Container ct) {
+            ct.doLayout();
+            for (Component ch : ct.getComponents()) layoutDeep(ch);
+        }
+    }
+
+    private static int count(Component c) {
+        int n = 1;
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) n += count(ch);
+        }
+        return n;
+    }
+
+    private static double paintMs(JComponent c, int rounds) {
+        return paintMs(c, new Rectangle(0, 0, W, H), rounds);
+    }
+
+    private static double paintMs(JComponent c, Rectangle clip, int rounds) {
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+        paintOnce(c, clip, img); // warm-up (fonts, UI delegates, color cache)
+        long t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) paintOnce(c, clip, img);
+        return (System.nanoTime() - t0) / 1e6 / rounds;
+    }
+
+    private static void paintOnce(JComponent c, Rectangle clip, BufferedImage img) {
+        Graphics2D g = img.createGraphics();
+        try {
+            g.clipRect(clip.x, clip.y, clip.width, clip.height);
+            c.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless offscreen render benchmark: light vs dark vs dark + {@link OpacityOptimizer}.
+ * - Builds a Designer-like tree (nested panels, labels, a large scrolled panel), themes it with the
+ *   real painter and paints it into a BufferedImage (full paint time).
+ * - Scrolling is emulated the way the RepaintManager would do it: without blit the whole viewport is
+ *   repainted from the nearest opaque ancestor; with blit only the exposed strip is.
+ * - Overdraw is structural: for a repaint of every leaf, how many components get painted and how
+ *   many times each pixel is filled (opaque components intersecting the dirty rect).
+ * Run (test classes): java -Djava.awt.headless=true -cp build/classes/java/main:build/classes/java/test \
+ *      com.example.darkmode.designer.OpacityBenchmark [rounds]
+ */
+final class OpacityBenchmark {
+
+    private static final int W = 1400, H = 900, SCROLL_STEP = 24;
+
+    private OpacityBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        SwingUtilities.invokeAndWait(() -> run(rounds));
+    }
+
+    private static void run(int rounds) {
+        DarkPainter painter = DarkPainter.install();
+        System.out.printf("%-12s %10s %10s %9s %9s %8s %6s%n",
+                "mode", "paint ms", "scroll ms", "painted", "fills/px", "opaque", "blit");
+        measure("light", painter, false, false, rounds);
+        measure("dark", painter, true, false, rounds);
+        measure("dark+opt", painter, true, true, rounds);
+        painter.setOpacityOptimization(true);
+        painter.setDarkMode(false);
+    }
+
+    private static void measure(String label, DarkPainter painter, boolean dark, boolean optimize, int rounds) {
+        JComponent root = buildTree();
+        painter.setOpacityOptimization(optimize);
+        painter.setDarkMode(dark);
+        painter.paintTree(root);
+        layoutDeep(root);
+
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+        paintOnce(root, img); // warm-up (fonts, UI delegates)
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) paintOnce(root, img);
+        double paintMs = (System.nanoTime() - t0) / 1e6 / rounds;
+
+        JViewport vp = findViewport(root);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) scroll(vp, img, i);
+        double scrollMs = (System.nanoTime() - t1) / 1e6 / rounds;
+
+        List<JComponent> leaves = new ArrayList<>();
+        collectLeaves(root, leaves);
+        long painted = 0;
+        double fills = 0;
+        for (JComponent leaf : leaves) {
+            Rectangle dirty = SwingUtilities.convertRectangle(leaf, new Rectangle(leaf.getSize()), root);
+            Component from = paintRoot(leaf);
+            Rectangle clip = SwingUtilities.convertRectangle(root, dirty, from);
+            painted += countPainted(from, clip);
+            fills += fillsPerPixel(from, clip);
+        }
+        int n = Math.max(1, leaves.size());
+        boolean blit = vp.getView().isOpaque() && vp.getScrollMode() == JViewport.BLIT_SCROLL_MODE;
+        System.out.printf("%-12s %10.2f %10.3f %9.1f %9.2f %8d %6s%n", label, paintMs, scrollMs,
+                painted / (double) n, fills / n, countOpaquePanels(root), blit);
+    }
+
+    // ===== Synthetic tree =====
+    private static JComponent buildTree() {
+        JPanel root = new JPanel(new BorderLayout());
+        root.setOpaque(true);
+        root.setSize(W, H);
+
+        JPanel side = new JPanel(new GridLayout(0, 1));
+        for (int i = 0; i < 30; i++) side.add(nested("Side " + i, 3));
+        root.add(side, BorderLayout.WEST);
+
+        JPanel big = new JPanel(new GridLayout(0, 6, 4, 4));
+        for (int i = 0; i < 600; i++) big.add(nested("Cell " + i, 2));
+        JScrollPane sp = new JScrollPane(big);
+        root.add(sp, BorderLayout.CENTER);
+        return root;
+    }
+
+    private static JComponent nested(String text, int depth) {
+        JPanel p = new JPanel(new BorderLayout());
+        p.setOpaque(false);
+        if (depth == 0) {
+            p.add(new JLabel(text));
+        } else {
+            p.add(nested(text, depth - 1), BorderLayout.CENTER);
+        }
+        return p;
+    }
+
+    private static void layoutDeep(Component c) {
+        if (c instanceof Container ct) {
+            ct.doLayout();
+            for (Component ch : ct.getComponents()) layoutDeep(ch);
+        }
+    }
+
+    // ===== Rendering =====
+    private static void paintOnce(JComponent root, BufferedImage img) {
+        Graphics2D g = img.createGraphics();
+        try {
+            root.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static void scroll(JViewport vp, BufferedImage img, int step) {
+        Component view = vp.getView();
+        int maxY = Math.max(1, view.getHeight() - vp.getHeight());
+        vp.setViewPosition(new Point(0, (step * SCROLL_STEP) % maxY));
+        layoutDeep(vp);
+
+        boolean blit = view.isOpaque() && vp.getScrollMode() == JViewport.BLIT_SCROLL_MODE;
+        Rectangle dirty = blit
+                ? new Rectangle(0, vp.getHeight() - SCROLL_STEP, vp.getWidth(), SCROLL_STEP)
+                : new Rectangle(vp.getSize());
+        Component from = paintRoot(blit ? view : vp);
+        Rectangle clip = SwingUtilities.convertRectangle(vp, dirty, from);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.clipRect(clip.x, clip.y, clip.width, clip.height);
+            from.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Where the RepaintManager starts painting for a dirty region of c
+    private static Component paintRoot(Component c) {
+        Component p = c;
+        while (p.getParent() != null && !p.isOpaque()) p = p.getParent();
+        return p;
+    }
+
+    // ===== Overdraw =====
+    private static int countPainted(Component c, Rectangle clip) {
+        if (!c.isVisible() || !clip.intersects(0, 0, c.getWidth(), c.getHeight())) return 0;
+        int n = 1;
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) {
+                Rectangle r = new Rectangle(clip);
+                r.translate(-ch.getX(), -ch.getY());
+                n += countPainted(ch, r);
+            }
+        }
+        return n;
+    }
+
+    private static double fillsPerPixel(Component c, Rectangle clip) {
+        double area = (double) clip.width * clip.height;
+        return area == 0 ? 0 : filledArea(c, clip) / area;
+    }
+
+    private static double filledArea(Component c, Rectangle clip) {
+        Rectangle vis = clip.intersection(new Rectangle(c.getSize()));
+        if (!c.isVisible() || vis.isEmpty()) return 0;
+        double a = c.isOpaque() ? (double) vis.width * vis.height : 0;
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) {
+                Rectangle r = new Rectangle(vis);
+                r.translate(-ch.getX(), -ch.getY());
+                a += filledArea(ch, r);
+            }
+        }
+        return a;
+    }
+
+    // ===== Helpers =====
+    private static JViewport findViewport(Component c) {
+        if (c instanceof JViewport vp) return vp;
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) {
+                JViewport vp = findViewport(ch);
+                if (vp != null) return vp;
+            }
+        }
+        return null;
+    }
+
+    private static void collectLeaves(Component c, List<JComponent> out) {
+        if (c instanceof Container ct && ct.getComponentCount() > 0) {
+            for (Component ch : ct.getComponents()) collectLeaves(ch, out);
+        } else if (c instanceof JComponent jc) {
+            out.add(jc);
+        }
+    }
+
+    private static int countOpaquePanels(Component c) {
+        int n = c instanceof JPanel p && p.isOpaque() ? 1 : 0;
+        if (c instanceof Container ct) {
+            for (Component ch : ct.getComponents()) n += countOpaquePanels(ch);
+        }
+        return n;
+    }
+}
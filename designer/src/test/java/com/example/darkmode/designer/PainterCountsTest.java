@@ -0,0 +1,204 @@
+package com.example.darkmode.designer;
+
+import com.inductiveautomation.ignition.client.util.gui.OutputConsole;
+import com.inductiveautomation.ignition.designer.navtree.NavTreePanel;
+import com.inductiveautomation.ignition.designer.tags.frame.TagBrowserFrame;
+import com.inductiveautomation.perspective.designer.workspace.propertyeditor.PropertyEditorFrame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Exact work counts of the sweep on a stub Designer tree (Project Browser, Property Editor, Output
+ * Console, Tag Browser under their real class names), through dark/light toggles and dynamic adds.
+ * The counters are deterministic for a fixed tree, so a change in how much the painter visits,
+ * sets or installs shows up here as a changed number. Headless; the painter runs on the EDT, and
+ * each measurement includes the follow-up work the pass queued on the EDT.
+ */
+class PainterCountsTest {
+
+    private static final int TREE_SIZE = 54;                 // components in designerTree()
+    private static final long STEADY_PASS_BYTES = 32 * 1024; // allocation budget of one steady pass
+
+    private final DarkPainter painter = DarkPainter.install();
+
+    @AfterEach
+    void backToLight() throws Exception {
+        onEdt(() -> {
+            painter.setDarkMode(false);
+            return null;
+        });
+    }
+
+    @Test
+    void firstDarkPassVisitsEachComponentOnce() throws Exception {
+        JComponent root = onEdt(PainterCountsTest::designerTree);
+        onEdt(() -> {
+            painter.setDarkMode(true);
+            return null;
+        });
+        assertCounts(pass(() -> open(root)), TREE_SIZE, 96, 27, 112);
+    }
+
+    @Test
+    void subtreeJobDoesTheWorkOfAFirstPass() throws Exception {
+        JComponent root = onEdt(PainterCountsTest::designerTree);
+        onEdt(() -> {
+            painter.setDarkMode(true);
+            return null;
+        });
+        assertCounts(pass(() -> painter.themeSubtree(root, DarkPainter.Priority.URGENT)), TREE_SIZE, 96, 27, 112);
+    }
+
+    @Test
+    void repeatedDarkPassChangesNothing() throws Exception {
+        JComponent root = darkTree();
+        // every property already has its dark value: compared, never set
+        assertCounts(pass(() -> painter.paintTree(root)), TREE_SIZE, 0, 61, 0);
+    }
+
+    @Test
+    void toggleRoundTripReinstallsNothing() throws Exception {
+        JComponent root = darkTree();
+        assertCounts(pass(() -> {
+            painter.setDarkMode(false);
+            painter.paintTree(root);
+        }), TREE_SIZE, 84, 9, 0);
+        assertCounts(pass(() -> {
+            painter.setDarkMode(true);
+            painter.paintTree(root);
+        }), TREE_SIZE, 79, 18, 0);
+    }
+
+    @Test
+    void dynamicAddsVisitOnlyTheNewSubtree() throws Exception {
+        JComponent root = darkTree();
+        JPanel added = onEdt(JPanel::new);
+        assertCounts(pass(() -> {
+            added.add(new JLabel("a"));
+            added.add(new JButton("b"));
+            added.add(new JTextField("c"));
+            root.add(added);
+        }), 4, 6, 0, 8);
+        assertCounts(pass(() -> added.add(new JCheckBox("d"))), 1, 2, 0, 2);
+        assertCounts(pass(() -> consoleOf(root).add(new JLabel("e"))), 1, 0, 0, 2);
+    }
+
+    @Test
+    void steadyDarkPassAllocatesLittle() throws Exception {
+        assumeTrue(PaintCounters.allocationSupported(), "ThreadMXBean allocation counters");
+        JComponent root = darkTree();
+        onEdt(() -> {
+            for (int i = 0; i < 20; i++) painter.paintTree(root); // warm-up: JIT, class values, caches
+            return null;
+        });
+        PaintCounters.Snapshot s = pass(() -> painter.paintTree(root));
+        assertCounts(s, TREE_SIZE, 0, 61, 0); // sets nothing, like any repeated pass
+        // byte counts vary with the JVM (TLAB sizes, escape analysis): a budget, not an exact value
+        assertTrue(s.allocatedBytes() < STEADY_PASS_BYTES, "allocated " + s.allocatedBytes() + " bytes");
+    }
+
+    private static void assertCounts(PaintCounters.Snapshot s, long visits, long setterCalls, long elided,
+                                     long installs) {
+        assertEquals(List.of(visits, setterCalls, elided, installs, 0L),
+                List.of(s.visits(), s.setterCalls(), s.settersElided(), s.listenerInstalls(), s.listenerRemovals()),
+                "visits, setterCalls, settersElided, listenerInstalls, listenerRemovals");
+    }
+
+    // ===== Stub Designer tree =====
+    private static JComponent designerTree() {
+        JPanel root = new JPanel(new BorderLayout());
+
+        NavTreePanel nav = new NavTreePanel();
+        nav.setLayout(new BorderLayout());
+        nav.add(new JScrollPane(new JTree()));
+        root.add(nav, BorderLayout.WEST);
+
+        PropertyEditorFrame props = new PropertyEditorFrame();
+        props.setLayout(new BorderLayout());
+        props.add(new JTextField("search"), BorderLayout.NORTH);
+        props.add(new JScrollPane(new JTable(4, 2)));
+        props.add(new JLabel("Props"), BorderLayout.SOUTH);
+        root.add(props, BorderLayout.EAST);
+
+        OutputConsole console = new OutputConsole();
+        console.setLayout(new BorderLayout());
+        JTextPane text = new JTextPane();
+        text.setText("INFO started\nWARN slow\nERROR failed\n");
+        console.add(new JScrollPane(text));
+        root.add(console, BorderLayout.SOUTH);
+
+        TagBrowserFrame tags = new TagBrowserFrame();
+        tags.setLayout(new BorderLayout());
+        tags.add(new JScrollPane(new JTable(3, 3)));
+        tags.add(new JButton("Refresh"), BorderLayout.NORTH);
+        root.add(tags, BorderLayout.CENTER);
+
+        JPanel toolbar = new JPanel();
+        for (int i = 0; i < 4; i++) toolbar.add(new JButton("Tool " + i));
+        toolbar.add(new JCheckBox("Preview"));
+        root.add(toolbar, BorderLayout.NORTH);
+        return root;
+    }
+
+    private static Container consoleOf(Container root) {
+        for (Component c : root.getComponents()) {
+            if (c instanceof OutputConsole oc) return oc;
+        }
+        throw new IllegalStateException("no console");
+    }
+
+    // ===== Helpers =====
+    // What the painter does when the tree's window opens: watch for adds, then sweep
+    private void open(JComponent root) {
+        painter.attachContainerListenerDeep(root);
+        painter.paintTree(root);
+    }
+
+    // A fresh tree after its first dark pass (and that pass's follow-ups)
+    private JComponent darkTree() throws Exception {
+        JComponent root = onEdt(PainterCountsTest::designerTree);
+        pass(() -> {
+            painter.setDarkMode(true);
+            open(root);
+        });
+        return root;
+    }
+
+    // Counter delta of work on the EDT plus the follow-ups it queued (until an EDT turn adds nothing)
+    private PaintCounters.Snapshot pass(Runnable work) throws Exception {
+        PaintCounters.Snapshot before = onEdt(() -> {
+            PaintCounters.Snapshot b = painter.counters().snapshot();
+            work.run();
+            return b;
+        });
+        PaintCounters.Snapshot after = onEdt(painter.counters()::snapshot);
+        for (PaintCounters.Snapshot prev = null; !after.equals(prev); ) {
+            prev = after;
+            after = onEdt(painter.counters()::snapshot);
+        }
+        return after.minus(before);
+    }
+
+    private static <T> T onEdt(Supplier<T> work) throws Exception {
+        Object[] out = new Object[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> out[0] = work.get());
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception x) throw x;
+            if (e.getCause() instanceof Error x) throw x;
+            throw e;
+        }
+        @SuppressWarnings("unchecked") T t = (T) out[0];
+        return t;
+    }
+}
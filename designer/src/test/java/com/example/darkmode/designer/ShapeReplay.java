@@ -0,0 +1,262 @@
+package com.example.darkmode.designer;
+
+import javax.swing.*;
+import javax.swing.plaf.ColorUIResource;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless replay of captured Designer screens (see {@link TreeShapes}) through the real painter.
+ * - Every recorded class is rebuilt under its own name: the real class when it is on the classpath,
+ *   otherwise a generated stub (an empty subclass, same superclass chain), so class-name rules,
+ *   isUnder checks and ClassValue caches behave as they do in the Designer.
+ * - A class that can't be rebuilt falls back to its nearest recorded superclass (javax.swing at worst).
+ * - Per window: a cold dark pass, warm repeat passes and the light revert pass, with time and the
+ *   painter's work counters.
+ * Run (test classes): java -Djava.awt.headless=true -cp build/classes/java/main:build/classes/java/test \
+ *      com.example.darkmode.designer.ShapeReplay shapes.bin [rounds]
+ */
+final class ShapeReplay {
+
+    private ShapeReplay() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: ShapeReplay <shapes.bin> [rounds]");
+            return;
+        }
+        List<TreeShapes.Node> windows;
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            windows = TreeShapes.read(in);
+        }
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        SwingUtilities.invokeAndWait(() -> run(windows, rounds));
+    }
+
+    private static void run(List<TreeShapes.Node> windows, int rounds) {
+        DarkPainter painter = DarkPainter.install();
+        StubLoader loader = new StubLoader(ShapeReplay.class.getClassLoader());
+        System.out.printf("%-40s %7s %9s %9s %9s %10s %9s %9s%n",
+                "window", "comps", "cold ms", "warm ms", "light ms", "setters", "elided", "installs");
+        for (TreeShapes.Node w : windows) {
+            Component root = loader.build(w);
+            painter.setDarkMode(false);
+
+            PaintCounters.Snapshot s0 = painter.counters().snapshot();
+            painter.setDarkMode(true);
+            long t0 = System.nanoTime();
+            painter.paintTree(root);
+            double coldMs = (System.nanoTime() - t0) / 1e6;
+            PaintCounters.Snapshot cold = painter.counters().snapshot().minus(s0);
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < rounds; i++) painter.paintTree(root);
+            double warmMs = (System.nanoTime() - t1) / 1e6 / Math.max(1, rounds);
+
+            painter.setDarkMode(false);
+            long t2 = System.nanoTime();
+            painter.paintTree(root);
+            double lightMs = (System.nanoTime() - t2) / 1e6;
+
+            System.out.printf("%-40s %7d %9.2f %9.3f %9.2f %10d %9d %9d%n", shortName(w.type().name()),
+                    w.count(), coldMs, warmMs, lightMs, cold.setterCalls(), cold.settersElided(),
+                    cold.listenerInstalls());
+        }
+        if (loader.fallbacks > 0) System.out.println(loader.fallbacks + " component(s) rebuilt as a superclass");
+    }
+
+    private static String shortName(String n) {
+        return n.length() <= 40 ? n : "…" + n.substring(n.length() - 39);
+    }
+
+    // ===== Rebuilding =====
+    /**
+     * Resolves recorded names parent-first and defines the missing ones as stubs. Windows can't exist
+     * headless, so a window class (and anything else without a usable no-arg constructor) is rooted
+     * at JPanel instead.
+     */
+    private static final class StubLoader extends ClassLoader {
+        private final Map<String, TreeShapes.ClassSpec> specs = new HashMap<>();
+        private final Map<TreeShapes.ClassSpec, Constructor<? extends Component>> ctors = new HashMap<>();
+        int fallbacks;
+
+        StubLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Component build(TreeShapes.Node n) {
+            Component c = instantiate(n.type());
+            if (c instanceof Container ct && !n.children().isEmpty()) {
+                ct.removeAll(); // what the constructor/UI added is replaced by what was recorded
+                try {
+                    ct.setLayout(null);
+                } catch (RuntimeException e) {
+                    // keeps its own layout (e.g. a stub whose superclass insists on one)
+                }
+                for (TreeShapes.Node ch : n.children()) {
+                    try {
+                        ct.add(build(ch));
+                    } catch (RuntimeException e) {
+                        fallbacks++; // container refused the child (type-checked add)
+                    }
+                }
+            }
+            c.setVisible(n.has(TreeShapes.VISIBLE));
+            if (c instanceof JComponent jc) jc.setOpaque(n.has(TreeShapes.OPAQUE));
+            if (n.has(TreeShapes.BG)) c.setBackground(color(n.bg(), n.has(TreeShapes.BG_UI)));
+            if (n.has(TreeShapes.FG)) c.setForeground(color(n.fg(), n.has(TreeShapes.FG_UI)));
+            if (n.has(TreeShapes.SIZED)) size(c, n.sizeA(), n.sizeB());
+            return c;
+        }
+
+        private static Color color(int argb, boolean ui) {
+            return ui ? new ColorUIResource(new Color(argb, true)) : new Color(argb, true);
+        }
+
+        private static void size(Component c, int a, int b) {
+            if (c instanceof JTable t) {
+                t.setModel(new DefaultTableModel(a, b));
+            } else if (c instanceof JTree t) {
+                DefaultMutableTreeNode root = new DefaultMutableTreeNode("root");
+                for (int i = 1; i < a; i++) root.add(new DefaultMutableTreeNode(i));
+                t.setModel(new DefaultTreeModel(root));
+            } else if (c instanceof JList<?> l) {
+                @SuppressWarnings("unchecked") JList<Object> ol = (JList<Object>) l;
+                DefaultListModel<Object> m = new DefaultListModel<>();
+                for (int i = 0; i < a; i++) m.addElement(i);
+                ol.setModel(m);
+            } else if (c instanceof JComboBox<?> cb) {
+                @SuppressWarnings("unchecked") JComboBox<Object> ocb = (JComboBox<Object>) cb;
+                DefaultComboBoxModel<Object> m = new DefaultComboBoxModel<>();
+                for (int i = 0; i < a; i++) m.addElement(i);
+                ocb.setModel(m);
+            }
+        }
+
+        private Component instantiate(TreeShapes.ClassSpec spec) {
+            for (TreeShapes.ClassSpec s = spec; s != null; s = s.superclass()) {
+                Constructor<? extends Component> ctor = ctors.computeIfAbsent(s, this::constructor);
+                if (ctor == null) continue;
+                try {
+                    if (s != spec) fallbacks++;
+                    return ctor.newInstance();
+                } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                    ctors.put(s, null);
+                }
+            }
+            fallbacks++;
+            return new JPanel();
+        }
+
+        private Constructor<? extends Component> constructor(TreeShapes.ClassSpec spec) {
+            register(spec);
+            try {
+                Class<?> k = loadClass(spec.name());
+                if (!Component.class.isAssignableFrom(k) || Window.class.isAssignableFrom(k)) return null;
+                if (Modifier.isAbstract(k.getModifiers())) return null;
+                return k.asSubclass(Component.class).getConstructor();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                return null;
+            }
+        }
+
+        private void register(TreeShapes.ClassSpec spec) {
+            for (TreeShapes.ClassSpec s = spec; s != null && !s.platform(); s = s.superclass()) {
+                specs.putIfAbsent(s.name(), s);
+            }
+        }
+
+        @Override protected Class<?> findClass(String name) throws ClassNotFoundException {
+            TreeShapes.ClassSpec spec = specs.get(name);
+            if (spec == null) throw new ClassNotFoundException(name);
+            byte[] b = stubBytes(name, superName(spec.superclass()));
+            return defineClass(name, b, 0, b.length);
+        }
+
+        // Stub superclass: the recorded one, except where it can't be subclassed headless
+        private String superName(TreeShapes.ClassSpec sup) {
+            if (!sup.platform()) return sup.name();
+            try {
+                for (Class<?> k = Class.forName(sup.name(), false, getParent()); k != null; k = k.getSuperclass()) {
+                    if (Window.class.isAssignableFrom(k) || !Component.class.isAssignableFrom(k)) break;
+                    if (Modifier.isPublic(k.getModifiers()) && hasInheritableNoArgConstructor(k)) return k.getName();
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                // not in this JDK: below
+            }
+            return JPanel.class.getName();
+        }
+
+        private static boolean hasInheritableNoArgConstructor(Class<?> k) {
+            try {
+                int m = k.getDeclaredConstructor().getModifiers();
+                return Modifier.isPublic(m) || Modifier.isProtected(m);
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    }
+
+    /** Class file of {@code public class name extends superName { public name() { super(); } }}. */
+    static byte[] stubBytes(String name, String superName) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream d = new DataOutputStream(bytes);
+            d.writeInt(0xCAFEBABE);
+            d.writeShort(0);          // minor
+            d.writeShort(52);         // major: Java 8 (no stack map frames needed for straight-line code)
+            d.writeShort(10);         // constant pool count (entries 1..9)
+            utf8(d, name.replace('.', '/'));        // #1
+            d.writeByte(7); d.writeShort(1);        // #2 Class #1
+            utf8(d, superName.replace('.', '/'));   // #3
+            d.writeByte(7); d.writeShort(3);        // #4 Class #3
+            utf8(d, "<init>");                      // #5
+            utf8(d, "()V");                         // #6
+            d.writeByte(12); d.writeShort(5); d.writeShort(6); // #7 NameAndType
+            d.writeByte(10); d.writeShort(4); d.writeShort(7); // #8 Methodref super.<init>()V
+            utf8(d, "Code");                        // #9
+            d.writeShort(0x0021);     // ACC_PUBLIC | ACC_SUPER
+            d.writeShort(2);          // this
+            d.writeShort(4);          // super
+            d.writeShort(0);          // interfaces
+            d.writeShort(0);          // fields
+            d.writeShort(1);          // methods
+            d.writeShort(0x0001); d.writeShort(5); d.writeShort(6); // public <init>()V
+            d.writeShort(1);          // attributes: Code
+            d.writeShort(9);
+            d.writeInt(17);           // attribute length
+            d.writeShort(1);          // max stack
+            d.writeShort(1);          // max locals
+            d.writeInt(5);            // code: aload_0; invokespecial #8; return
+            d.write(new byte[]{0x2A, (byte) 0xB7, 0x00, 0x08, (byte) 0xB1});
+            d.writeShort(0);          // exception table
+            d.writeShort(0);          // code attributes
+            d.writeShort(0);          // class attributes
+            d.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+    }
+
+    private static void utf8(DataOutputStream d, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        d.writeByte(1);
+        d.writeShort(b.length);
+        d.write(b);
+    }
+}
@@ -0,0 +1,7 @@
+package com.inductiveautomation.ignition.client.util.gui;
+
+import javax.swing.*;
+
+/** Test stand-in: the painter recognizes the Output Console by this class name. */
+public class OutputConsole extends JPanel {
+}
@@ -0,0 +1,7 @@
+package com.inductiveautomation.ignition.designer.navtree;
+
+import javax.swing.*;
+
+/** Test stand-in: the painter recognizes the Project Browser by this class name. */
+public class NavTreePanel extends JPanel {
+}
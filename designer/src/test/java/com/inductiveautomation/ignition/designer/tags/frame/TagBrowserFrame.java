@@ -0,0 +1,7 @@
+package com.inductiveautomation.ignition.designer.tags.frame;
+
+import javax.swing.*;
+
+/** Test stand-in: the painter recognizes the Tag Browser by its package and class name. */
+public class TagBrowserFrame extends JPanel {
+}
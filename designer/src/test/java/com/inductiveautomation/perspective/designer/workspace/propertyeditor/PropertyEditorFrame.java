@@ -0,0 +1,7 @@
+package com.inductiveautomation.perspective.designer.workspace.propertyeditor;
+
+import javax.swing.*;
+
+/** Test stand-in: the painter recognizes the Perspective Property Editor by this class name. */
+public class PropertyEditorFrame extends JPanel {
+}